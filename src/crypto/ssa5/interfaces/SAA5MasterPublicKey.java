@@ -3,9 +3,20 @@ package crypto.ssa5.interfaces;
 import java.security.PublicKey;
 
 import matrix.ModularMatrix;
+import matrix.ModularMatrixBatch;
 
 public interface SAA5MasterPublicKey extends SAA5Key, PublicKey, Serializable {
 	ModularMatrix[] getYB2();
 
 	ModularMatrix[] getYB3();
+
+	/** Returns yB2 as one batch, for the kernels over every slice. */
+	default ModularMatrixBatch getYB2Batch() {
+		return new ModularMatrixBatch(getYB2());
+	}
+
+	/** Returns yB3 as one batch, for the kernels over every slice. */
+	default ModularMatrixBatch getYB3Batch() {
+		return new ModularMatrixBatch(getYB3());
+	}
 }
@@ -3,7 +3,13 @@ package crypto.ssa5.interfaces;
 import java.security.PrivateKey;
 
 import matrix.ModularMatrix;
+import matrix.ModularMatrixBatch;
 
 public interface SAA5SlavePrivateKey extends SAA5Key, PrivateKey, Serializable {
 	ModularMatrix[] getXA();
+
+	/** Returns xA as one batch, for the kernels over every slice. */
+	default ModularMatrixBatch getXABatch() {
+		return new ModularMatrixBatch(getXA());
+	}
 }
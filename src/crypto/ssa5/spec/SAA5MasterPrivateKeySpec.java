@@ -3,6 +3,7 @@ package crypto.ssa5.spec;
 import java.math.BigInteger;
 
 import matrix.ModularMatrix;
+import matrix.ModularMatrixBatch;
 
 public class SAA5MasterPrivateKeySpec extends SAA5KeySpec {
 	protected final BigInteger c;
@@ -19,6 +20,11 @@ public class SAA5MasterPrivateKeySpec extends SAA5KeySpec {
 		this.NB = NBinverse;
 	}
 
+	public SAA5MasterPrivateKeySpec(SAA5ParameterSpec params, BigInteger c, ModularMatrixBatch A, ModularMatrix xB,
+			ModularMatrix NBinverse) {
+		this(params, c, A.toArray(), xB, NBinverse);
+	}
+
 	public ModularMatrix getXB() {
 		return xB;
 	}
@@ -1,22 +1,35 @@
 package crypto.ssa5.spec;
 
 import matrix.ModularMatrix;
+import matrix.ModularMatrixBatch;
 
 public class SAA5MasterPublicKeySpec extends SAA5KeySpec {
-	private final ModularMatrix[] yB2;
-	private final ModularMatrix[] yB3;
+	private final ModularMatrixBatch yB2;
+	private final ModularMatrixBatch yB3;
 
 	public SAA5MasterPublicKeySpec(SAA5ParameterSpec params, ModularMatrix[] yB2, ModularMatrix[] yB3) {
+		this(params, new ModularMatrixBatch(yB2), new ModularMatrixBatch(yB3));
+	}
+
+	public SAA5MasterPublicKeySpec(SAA5ParameterSpec params, ModularMatrixBatch yB2, ModularMatrixBatch yB3) {
 		super(params);
 		this.yB2 = yB2;
 		this.yB3 = yB3;
 	}
 
 	public ModularMatrix[] getYB2() {
-		return yB2.clone();
+		return yB2.toArray();
 	}
 
 	public ModularMatrix[] getYB3() {
-		return yB3.clone();
+		return yB3.toArray();
+	}
+
+	public ModularMatrixBatch getYB2Batch() {
+		return yB2;
+	}
+
+	public ModularMatrixBatch getYB3Batch() {
+		return yB3;
 	}
 }
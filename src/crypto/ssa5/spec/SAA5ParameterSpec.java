@@ -7,6 +7,7 @@ import crypto.ssa5.interfaces.Serializable;
 import crypto.ssa5.spi.ByteArrayConverter;
 
 public class SAA5ParameterSpec implements AlgorithmParameterSpec, Serializable {
+	private static final long serialVersionUID = -3876339261851739215L;
 	protected final int d;
 	protected final BigInteger p;
 	protected final int I;
@@ -112,4 +113,14 @@ public class SAA5ParameterSpec implements AlgorithmParameterSpec, Serializable {
 			return false;
 		return true;
 	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + I;
+		result = prime * result + d;
+		result = prime * result + ((p == null) ? 0 : p.hashCode());
+		return result;
+	}
 }
@@ -1,16 +1,25 @@
 package crypto.ssa5.spec;
 
 import matrix.ModularMatrix;
+import matrix.ModularMatrixBatch;
 
 public class SAA5SlavePrivateKeySpec extends SAA5KeySpec {
-	private final ModularMatrix[] xA;
+	private final ModularMatrixBatch xA;
 
 	public SAA5SlavePrivateKeySpec(SAA5ParameterSpec params, ModularMatrix[] xA) {
+		this(params, new ModularMatrixBatch(xA));
+	}
+
+	public SAA5SlavePrivateKeySpec(SAA5ParameterSpec params, ModularMatrixBatch xA) {
 		super(params);
 		this.xA = xA;
 	}
 
 	public final ModularMatrix[] getXA() {
-		return xA.clone();
+		return xA.toArray();
+	}
+
+	public final ModularMatrixBatch getXABatch() {
+		return xA;
 	}
 }
@@ -6,16 +6,19 @@ import java.security.spec.AlgorithmParameterSpec;
 
 import crypto.ssa5.interfaces.SAA5MasterPublicKey;
 import matrix.ModularMatrix;
+import matrix.ModularMatrixBatch;
 
 public class SAA5SlavePublicKeyParameterSpec implements AlgorithmParameterSpec {
 	private final SAA5ParameterSpec params;
-	private final ModularMatrix[] yB2;
+	private final ModularMatrixBatch yB2;
+	private final ModularMatrixBatch yB3;
 
 	public SAA5SlavePublicKeyParameterSpec(PublicKey masterPubKey) throws InvalidKeyException {
 		if (!(masterPubKey instanceof SAA5MasterPublicKey))
 			throw new InvalidKeyException();
 		this.params = ((SAA5MasterPublicKey) masterPubKey).getParams();
-		this.yB2 = ((SAA5MasterPublicKey) masterPubKey).getYB2();
+		this.yB2 = ((SAA5MasterPublicKey) masterPubKey).getYB2Batch();
+		this.yB3 = ((SAA5MasterPublicKey) masterPubKey).getYB3Batch();
 	}
 
 	public final SAA5ParameterSpec getParams() {
@@ -23,6 +26,18 @@ public class SAA5SlavePublicKeyParameterSpec implements AlgorithmParameterSpec {
 	}
 
 	public final ModularMatrix[] getYB2() {
+		return yB2.toArray();
+	}
+
+	public final ModularMatrix[] getYB3() {
+		return yB3.toArray();
+	}
+
+	public final ModularMatrixBatch getYB2Batch() {
 		return yB2;
 	}
+
+	public final ModularMatrixBatch getYB3Batch() {
+		return yB3;
+	}
 }
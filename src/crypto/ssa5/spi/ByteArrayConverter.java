@@ -92,6 +92,32 @@ public class ByteArrayConverter {
 		return new BigInteger(res);
 	}
 
+	/** Same layout as saveBInt for a non-negative long value. */
+	public static void saveBLong(byte[] array, int pos, long val, int byteLength) {
+		int valLength = byteLength(Long.SIZE - Long.numberOfLeadingZeros(val));
+		if (pos + byteLength > array.length)
+			throw new ArrayLengthNotEnoughException(array.length + " (" + (pos + byteLength) + ")");
+
+		if (valLength > byteLength)
+			throw new ArrayLengthNotEnoughException(pos + byteLength + " (" + pos + valLength + ")");
+
+		for (int i = byteLength - 1; i >= 0; i--) {
+			array[pos + i] = (byte) (val & 0xFF);
+			val >>>= 8;
+		}
+	}
+
+	/** Same layout as loadBInt for a value lower than 2^63. */
+	public static long loadBLong(byte[] array, int pos, int byteLength) {
+		if (pos + byteLength > array.length)
+			throw new ArrayLengthNotEnoughException(array.length + " (" + (pos + byteLength) + ")");
+
+		long res = array[pos] < 0 ? -1 : 0;
+		for (int i = 0; i < byteLength; i++)
+			res = (res << 8) | (array[pos + i] & 0xFF);
+		return res;
+	}
+
 	public static <E extends Serializable> int saveElem(byte[] array, int pos, E elem) {
 		copyToArray(array, pos, elem.toByteArray());
 		return elem.byteArrayLength();
@@ -0,0 +1,85 @@
+package crypto.ssa5.spi;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import crypto.ssa5.interfaces.SAA5MasterPublicKey;
+import crypto.ssa5.spec.SAA5ParameterSpec;
+import matrix.MatrixPool;
+import matrix.ModularMatrix;
+import matrix.ModularMatrixBatch;
+import matrix.generator.SplittableDRBG;
+
+/**
+ * The keys of a fixed seed are the same whether they are generated serially
+ * (threshold Long.MAX_VALUE) or on a pool of 4 threads splitting every
+ * kernel (threshold 1).
+ */
+public class DeterminismTest {
+	public static void main(String[] args) {
+		int suc = 0;
+		int num = 20;
+
+		Random random = new Random();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int i = 0; i < num; i++) {
+				int d = 2 + random.nextInt(15);
+				BigInteger p = BigInteger.probablePrime(32 + random.nextInt(100), random);
+				SAA5ParameterSpec params = new SAA5ParameterSpec(d, p, 1 + random.nextInt(5));
+				byte[] seed = new byte[32];
+				random.nextBytes(seed);
+
+				serial();
+				KeyPair[] ks = generate(params, seed);
+				parallel(pool);
+				KeyPair[] kp = generate(params, seed);
+				if (equals(ks, kp))
+					suc++;
+			}
+		} finally {
+			MatrixPool.setPool(null);
+			MatrixPool.setThreshold(MatrixPool.DEFAULT_THRESHOLD);
+			pool.shutdown();
+		}
+		System.out.println(suc + "/" + num);
+	}
+
+	static void serial() {
+		MatrixPool.setPool(null);
+		MatrixPool.setThreshold(Long.MAX_VALUE);
+	}
+
+	static void parallel(ForkJoinPool pool) {
+		MatrixPool.setPool(pool);
+		MatrixPool.setThreshold(1);
+	}
+
+	// the masters and the slaves of both algorithms, from forks of one seed
+	static KeyPair[] generate(SAA5ParameterSpec params, byte[] seed) {
+		SplittableDRBG drbg = new SplittableDRBG(seed);
+		KeyPair master = SAA5MasterKeyPairGeneratorSpi.generateKeyPair(params, drbg.fork(0));
+		KeyPair noSEMaster = SAA5noSEMasterKeyPairGeneratorSpi.generateKeyPair(params, drbg.fork(1));
+		return new KeyPair[] { master, noSEMaster, slave(params, master, drbg.fork(2), true),
+				slave(params, noSEMaster, drbg.fork(3), false) };
+	}
+
+	// xA and yA = Π_t Π_k yB2[t][k][j]^xA[t][i][k] of a slave of 'master'
+	static KeyPair slave(SAA5ParameterSpec params, KeyPair master, Random random, boolean recode) {
+		SlaveMaterial m = SlaveMaterial.generate(params, random, recode);
+		ModularMatrixBatch yB2 = ((SAA5MasterPublicKey) master.getPublic()).getYB2Batch();
+		BigInteger p = params.getP();
+		ModularMatrix yA = recode ? ModularMatrixBatch.exponentReversely(yB2, m.recoding, p)
+				: ModularMatrixBatch.exponentReversely(yB2, m.xA, p);
+		return new KeyPair(new SlavePublicKey(params, yA), new SlavePrivateKey(params, m.xA));
+	}
+
+	static boolean equals(KeyPair[] a, KeyPair[] b) {
+		for (int k = 0; k < a.length; k++)
+			if (!a[k].getPublic().equals(b[k].getPublic()) || !a[k].getPrivate().equals(b[k].getPrivate()))
+				return false;
+		return true;
+	}
+}
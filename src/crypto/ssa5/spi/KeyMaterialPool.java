@@ -0,0 +1,182 @@
+package crypto.ssa5.spi;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import crypto.ssa5.spec.SAA5ParameterSpec;
+
+/**
+ * Key material made ahead on a background thread.<BR>
+ * A pool started for a kind and parameters keeps up to 'capacity' items
+ * ready on a daemon thread of the lowest priority, which waits while the
+ * queue is full. A key pair generator takes from a pool only if it was
+ * constructed with it and initialized with these parameters and no random
+ * of its own. The generators of the providers have no pool, and through
+ * JCA KeyPairGenerator.initialize(params) always passes a SecureRandom that
+ * is not null, so a pool is used only by calling the SPI itself, as
+ * initialize(params, null). A master takes whole key pairs, which do not
+ * depend on the slave; a slave takes its private matrices xA with their
+ * recoding, and computes only the parts of the master's public key. With an
+ * empty pool a generator makes the material itself, by the random of the
+ * pool.<BR>
+ * The first item is made by start, so parameters that cannot make one fail
+ * there. If the background thread fails later, it records the failure and
+ * ends; the ready items can still be taken.<BR>
+ * Each item is taken once. The ready items are private keys held in memory
+ * until taken or the pool is stopped.
+ */
+public final class KeyMaterialPool {
+	/** The material a pool makes. */
+	public enum Kind {
+		/** Key pairs of SAA5MasterKeyPairGeneratorSpi. */
+		MASTER {
+			@Override
+			Object make(SAA5ParameterSpec params, Random random) {
+				return SAA5MasterKeyPairGeneratorSpi.generateKeyPair(params, random);
+			}
+		},
+		/** Key pairs of SAA5noSEMasterKeyPairGeneratorSpi. */
+		NOSE_MASTER {
+			@Override
+			Object make(SAA5ParameterSpec params, Random random) {
+				return SAA5noSEMasterKeyPairGeneratorSpi.generateKeyPair(params, random);
+			}
+		},
+		/** xA and its recoding for SAA5SlaveKeyPairGeneratorSpi. */
+		SLAVE {
+			@Override
+			Object make(SAA5ParameterSpec params, Random random) {
+				return SlaveMaterial.generate(params, random, true);
+			}
+		},
+		/** xA for SAA5noSESlaveKeyPairGeneratorSpi. */
+		NOSE_SLAVE {
+			@Override
+			Object make(SAA5ParameterSpec params, Random random) {
+				return SlaveMaterial.generate(params, random, false);
+			}
+		};
+
+		abstract Object make(SAA5ParameterSpec params, Random random);
+	}
+
+	private final Kind kind;
+	private final SAA5ParameterSpec params;
+	private final SecureRandom random;
+	private final BlockingQueue<Object> queue;
+	private final Thread thread;
+	private volatile boolean stopped;
+	private volatile Throwable failure;
+
+	private KeyMaterialPool(Kind kind, SAA5ParameterSpec params, int capacity, SecureRandom random) {
+		this.kind = kind;
+		this.params = params;
+		this.random = random;
+		queue = new ArrayBlockingQueue<>(capacity);
+		thread = new Thread(this::fill, "SAA5 " + kind + " key material");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+	}
+
+	/**
+	 * Makes the first item of 'kind' of 'params' by 'random', and starts
+	 * making the next in the background, up to 'capacity' ready.
+	 *
+	 * @throws IllegalArgumentException
+	 *             capacity < 1
+	 * @throws RuntimeException
+	 *             the first item cannot be made of 'params'
+	 */
+	public static KeyMaterialPool start(Kind kind, SAA5ParameterSpec params, int capacity, SecureRandom random) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity must be positive.(" + capacity + ")");
+		if (random == null)
+			throw new NullPointerException("random");
+		KeyMaterialPool pool = new KeyMaterialPool(kind, params, capacity, random);
+		pool.queue.add(kind.make(params, random));
+		pool.thread.start();
+		return pool;
+	}
+
+	/** Stops making material and drops the ready items. */
+	public void stop() {
+		stopped = true;
+		thread.interrupt();
+		queue.clear();
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public SAA5ParameterSpec getParams() {
+		return params;
+	}
+
+	/** Returns the number of ready items. */
+	public int available() {
+		return queue.size();
+	}
+
+	/** Returns true until the pool is stopped or its thread fails. */
+	public boolean isRunning() {
+		return !stopped && failure == null;
+	}
+
+	/** Returns what made the background thread fail, or null. */
+	public Throwable getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Checks that 'pool' makes 'kind', for the constructors of the
+	 * generators.
+	 *
+	 * @throws IllegalArgumentException
+	 *             the pool makes another kind
+	 */
+	static KeyMaterialPool check(KeyMaterialPool pool, Kind kind) {
+		if (pool.kind != kind)
+			throw new IllegalArgumentException("the pool makes " + pool.kind + ", not " + kind + ".");
+		return pool;
+	}
+
+	/**
+	 * Returns a ready item of 'params' from 'pool' for a generator
+	 * initialized with 'random', or null: there is no pool, the generator
+	 * was given its own random, the pool is of other parameters or empty.
+	 */
+	static Object poll(KeyMaterialPool pool, SAA5ParameterSpec params, Random random) {
+		if (pool == null || random != null || !pool.params.equals(params))
+			return null;
+		return pool.queue.poll();
+	}
+
+	/**
+	 * Returns the random of a generator, its own or, if it was given none,
+	 * the random of its pool.
+	 */
+	static Random random(KeyMaterialPool pool, Random random) {
+		return (random == null && pool != null) ? pool.random : random;
+	}
+
+	private void fill() {
+		try {
+			while (!stopped) {
+				Object item = kind.make(params, random);
+				if (stopped)
+					break;
+				queue.put(item);
+			}
+		} catch (InterruptedException e) {
+			// stopped
+		} catch (RuntimeException | Error e) {
+			failure = e;
+		} finally {
+			if (stopped)
+				queue.clear();
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package crypto.ssa5.spi;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.util.Random;
+
+import crypto.ssa5.spec.SAA5ParameterSpec;
+
+/**
+ * start, poll, the kind of a generator's pool, stop and the failure of the
+ * background thread of KeyMaterialPool.<BR>
+ * The first item is made by start, so a pool started by a seeded SHA1PRNG
+ * holds first the key pair of generateKeyPair by the same seed. A generator
+ * with the pool gives it only when initialized with the parameters of the
+ * pool and a null random.
+ */
+public class KeyMaterialPoolTest {
+	public static void main(String[] args) throws GeneralSecurityException {
+		int suc = 0;
+		int num = 20;
+
+		Random random = new Random();
+		for (int i = 0; i < num; i++) {
+			int d = 2 + random.nextInt(5);
+			BigInteger p = BigInteger.probablePrime(32 + random.nextInt(64), random);
+			SAA5ParameterSpec params = new SAA5ParameterSpec(d, p, 1 + random.nextInt(3));
+			SAA5ParameterSpec other = new SAA5ParameterSpec(d, BigInteger.probablePrime(32, random), params.getI());
+			long seed = random.nextLong();
+			if (start(params) && poll(params, other, seed) && kind(params) && stop(params) && failure(params))
+				suc++;
+		}
+		System.out.println(suc + "/" + num);
+	}
+
+	static SecureRandom seeded(long seed) throws GeneralSecurityException {
+		SecureRandom sr = SecureRandom.getInstance("SHA1PRNG");
+		sr.setSeed(seed);
+		return sr;
+	}
+
+	static boolean equals(KeyPair a, KeyPair b) {
+		return a.getPublic().equals(b.getPublic()) && a.getPrivate().equals(b.getPrivate());
+	}
+
+	// capacity < 1, no random, or parameters that make no key (I = 0)
+	static boolean start(SAA5ParameterSpec params) {
+		SAA5ParameterSpec none = new SAA5ParameterSpec(params.getD(), params.getP(), 0);
+		for (KeyMaterialPool.Kind kind : KeyMaterialPool.Kind.values()) {
+			try {
+				KeyMaterialPool.start(kind, params, 0, new SecureRandom()).stop();
+				return false;
+			} catch (IllegalArgumentException e) {
+			}
+			try {
+				KeyMaterialPool.start(kind, params, 1, null).stop();
+				return false;
+			} catch (NullPointerException e) {
+			}
+			try {
+				KeyMaterialPool.start(kind, none, 1, new SecureRandom()).stop();
+				return false;
+			} catch (IllegalArgumentException e) {
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A generator with its own random or of other parameters does not take
+	 * the first item; one initialized with the parameters and null does.
+	 */
+	static boolean poll(SAA5ParameterSpec params, SAA5ParameterSpec other, long seed)
+			throws GeneralSecurityException {
+		KeyMaterialPool pool = KeyMaterialPool.start(KeyMaterialPool.Kind.MASTER, params, 1, seeded(seed));
+		try {
+			KeyPair first = SAA5MasterKeyPairGeneratorSpi.generateKeyPair(params, seeded(seed));
+			SAA5MasterKeyPairGeneratorSpi gen = new SAA5MasterKeyPairGeneratorSpi(pool);
+
+			gen.initialize(params, seeded(seed + 1));
+			if (!equals(gen.generateKeyPair(), SAA5MasterKeyPairGeneratorSpi.generateKeyPair(params, seeded(seed + 1))))
+				return false;
+			gen.initialize(other, null);
+			if (!other.equals(((MasterPublicKey) gen.generateKeyPair().getPublic()).getParams()))
+				return false;
+			gen.initialize(params, null);
+			if (!equals(gen.generateKeyPair(), first))
+				return false;
+
+			return KeyMaterialPool.poll(null, params, null) == null
+					&& KeyMaterialPool.poll(pool, params, new SecureRandom()) == null
+					&& KeyMaterialPool.poll(pool, other, null) == null;
+		} finally {
+			pool.stop();
+		}
+	}
+
+	// every generator rejects a pool of another kind
+	static boolean kind(SAA5ParameterSpec params) {
+		KeyMaterialPool master = KeyMaterialPool.start(KeyMaterialPool.Kind.MASTER, params, 1, new SecureRandom());
+		KeyMaterialPool slave = KeyMaterialPool.start(KeyMaterialPool.Kind.SLAVE, params, 1, new SecureRandom());
+		int rejected = 0;
+		try {
+			try {
+				new SAA5MasterKeyPairGeneratorSpi(slave);
+			} catch (IllegalArgumentException e) {
+				rejected++;
+			}
+			try {
+				new SAA5noSEMasterKeyPairGeneratorSpi(master);
+			} catch (IllegalArgumentException e) {
+				rejected++;
+			}
+			try {
+				new SAA5SlaveKeyPairGeneratorSpi(master);
+			} catch (IllegalArgumentException e) {
+				rejected++;
+			}
+			try {
+				new SAA5noSESlaveKeyPairGeneratorSpi(slave);
+			} catch (IllegalArgumentException e) {
+				rejected++;
+			}
+			new SAA5MasterKeyPairGeneratorSpi(master);
+			new SAA5SlaveKeyPairGeneratorSpi(slave);
+		} catch (IllegalArgumentException e) {
+			return false;
+		} finally {
+			master.stop();
+			slave.stop();
+		}
+		return rejected == 4;
+	}
+
+	// no item is left, nor put by the thread after stop
+	static boolean stop(SAA5ParameterSpec params) {
+		KeyMaterialPool pool = KeyMaterialPool.start(KeyMaterialPool.Kind.NOSE_SLAVE, params, 3, new SecureRandom());
+		if (!pool.isRunning() || pool.available() < 1)
+			return false;
+		pool.stop();
+		if (pool.isRunning() || pool.available() != 0)
+			return false;
+		try {
+			Thread.sleep(50);
+		} catch (InterruptedException e) {
+			return false;
+		}
+		return pool.available() == 0 && KeyMaterialPool.poll(pool, params, null) == null;
+	}
+
+	// a random that fails on the background thread, after the first item
+	static boolean failure(SAA5ParameterSpec params) {
+		IllegalStateException gone = new IllegalStateException("no entropy");
+		SecureRandom flaky = new SecureRandom() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void nextBytes(byte[] bytes) {
+				if (Thread.currentThread().getName().startsWith("SAA5"))
+					throw gone;
+				super.nextBytes(bytes);
+			}
+		};
+		KeyMaterialPool pool = KeyMaterialPool.start(KeyMaterialPool.Kind.NOSE_MASTER, params, 3, flaky);
+		try {
+			for (int k = 0; k < 500 && pool.getFailure() == null; k++)
+				Thread.sleep(10);
+			return pool.getFailure() == gone && !pool.isRunning() && pool.available() == 1
+					&& KeyMaterialPool.poll(pool, params, null) != null;
+		} catch (InterruptedException e) {
+			return false;
+		} finally {
+			pool.stop();
+		}
+	}
+}
@@ -2,6 +2,7 @@ package crypto.ssa5.spi;
 
 import crypto.ssa5.interfaces.SAA5MasterPrivateKey;
 import crypto.ssa5.spec.SAA5ParameterSpec;
+import matrix.ExponentRecoding;
 import matrix.ModularMatrix;
 
 public class MasterPrivateKey implements SAA5MasterPrivateKey {
@@ -9,11 +10,15 @@ public class MasterPrivateKey implements SAA5MasterPrivateKey {
 	private final SAA5ParameterSpec params;
 	private final ModularMatrix xB;
 	private final ModularMatrix NB;
+	// NB * xB and its recoding for the exponentiation (SE), not serialized
+	private transient ModularMatrix NBxB;
+	private transient volatile ExponentRecoding recoding;
 
 	MasterPrivateKey(SAA5ParameterSpec params, ModularMatrix NBinverse, ModularMatrix xB) {
 		this.params = params;
 		this.xB = xB;
 		this.NB = NBinverse;
+		NBxB = NB.multi(xB, NB.getModulus());
 	}
 
 	// Serialize
@@ -54,6 +59,8 @@ public class MasterPrivateKey implements SAA5MasterPrivateKey {
 
 		NB = new ModularMatrix(array, pos);
 		pos += NB.byteArrayLength();
+
+		NBxB = NB.multi(xB, NB.getModulus());
 	}
 
 	@Override
@@ -81,6 +88,28 @@ public class MasterPrivateKey implements SAA5MasterPrivateKey {
 		return NB;
 	}
 
+	/**
+	 * Returns NB * xB (mod the modulus of NB), which is p - 1 for SE and p for
+	 * noSE. yA<sup>NB</sup><sup>xB</sup> = yA<sup>NB * xB</sup> for SE, and
+	 * yA * NB * xB = yA * (NB * xB) for noSE.
+	 */
+	ModularMatrix getNBxB() {
+		if (NBxB == null)
+			NBxB = NB.multi(xB, NB.getModulus());
+		return NBxB;
+	}
+
+	/**
+	 * Returns NB * xB recoded for yA.exponent, compiled at the first SE
+	 * agreement and shared by all of them.
+	 */
+	ExponentRecoding getRecoding() {
+		ExponentRecoding r = recoding;
+		if (r == null)
+			recoding = r = new ExponentRecoding(getNBxB());
+		return r;
+	}
+
 	@Override
 	public SAA5ParameterSpec getParams() {
 		return params;
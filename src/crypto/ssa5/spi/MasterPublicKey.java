@@ -1,10 +1,12 @@
 package crypto.ssa5.spi;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 
 import crypto.ssa5.interfaces.SAA5MasterPublicKey;
 import crypto.ssa5.spec.SAA5ParameterSpec;
 import matrix.ModularMatrix;
+import matrix.ModularMatrixBatch;
 
 public class MasterPublicKey implements SAA5MasterPublicKey {
 	private static final long serialVersionUID = -81651226894545181L;
@@ -12,18 +14,28 @@ public class MasterPublicKey implements SAA5MasterPublicKey {
 	private final ModularMatrix[] yB2;
 	private final ModularMatrix[] yB3;
 
-	public MasterPublicKey(SAA5ParameterSpec params, ModularMatrix[] yB2, ModularMatrix[] yB3) {
+	// yB2 and yB3 in one stack, rebuilt by readObject
+	private transient ModularMatrixBatch yB2Batch;
+	private transient ModularMatrixBatch yB3Batch;
+
+	public MasterPublicKey(SAA5ParameterSpec params, ModularMatrixBatch yB2, ModularMatrixBatch yB3) {
 		this.params = params;
-		this.yB2 = yB2;
-		this.yB3 = yB3;
+		this.yB2 = yB2.toArray();
+		this.yB3 = yB3.toArray();
+		this.yB2Batch = yB2;
+		this.yB3Batch = yB3;
+	}
+
+	public MasterPublicKey(SAA5ParameterSpec params, ModularMatrix[] yB2, ModularMatrix[] yB3) {
+		this(params, new ModularMatrixBatch(yB2), new ModularMatrixBatch(yB3));
 	}
 
 	// Serialize
 	@Override
 	public byte[] toByteArray() {
 		byte[] arrayParams = params.toByteArray();
-		byte[] arrayYB2 = ByteArrayConverter.arrayToBytes(yB2);
-		byte[] arrayYB3 = ByteArrayConverter.arrayToBytes(yB3);
+		byte[] arrayYB2 = yB2Batch.toByteArray();
+		byte[] arrayYB3 = yB3Batch.toByteArray();
 
 		int length = arrayParams.length + arrayYB2.length + arrayYB3.length;
 		byte[] res = new byte[length];
@@ -42,7 +54,7 @@ public class MasterPublicKey implements SAA5MasterPublicKey {
 
 	@Override
 	public int byteArrayLength() {
-		return params.byteArrayLength() + yB2[0].byteArrayLength() * (2 * params.getI());
+		return params.byteArrayLength() + yB2Batch.byteArrayLength() + yB3Batch.byteArrayLength();
 	}
 
 	// Deserialize
@@ -52,17 +64,18 @@ public class MasterPublicKey implements SAA5MasterPublicKey {
 		int I = params.getI();
 		pos += params.byteArrayLength();
 
-		yB2 = new ModularMatrix[I];
-		for (int i = 0; i < I; i++) {
-			yB2[i] = new ModularMatrix(array, pos);
-			pos += yB2[i].byteArrayLength();
-		}
-
-		yB3 = new ModularMatrix[I];
-		for (int i = 0; i < I; i++) {
-			yB3[i] = new ModularMatrix(array, pos);
-			pos += yB3[i].byteArrayLength();
-		}
+		yB2Batch = new ModularMatrixBatch(array, pos, I);
+		pos += yB2Batch.byteArrayLength();
+
+		yB3Batch = new ModularMatrixBatch(array, pos, I);
+		yB2 = yB2Batch.toArray();
+		yB3 = yB3Batch.toArray();
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		yB2Batch = new ModularMatrixBatch(yB2);
+		yB3Batch = new ModularMatrixBatch(yB3);
 	}
 
 	@Override
@@ -87,11 +100,22 @@ public class MasterPublicKey implements SAA5MasterPublicKey {
 
 	@Override
 	public ModularMatrix[] getYB2() {
-		return yB2.clone();
+		return yB2Batch.toArray();
 	}
 
+	@Override
 	public ModularMatrix[] getYB3() {
-		return yB3.clone();
+		return yB3Batch.toArray();
+	}
+
+	@Override
+	public ModularMatrixBatch getYB2Batch() {
+		return yB2Batch;
+	}
+
+	@Override
+	public ModularMatrixBatch getYB3Batch() {
+		return yB3Batch;
 	}
 
 	@Override
@@ -108,9 +132,9 @@ public class MasterPublicKey implements SAA5MasterPublicKey {
 				return false;
 		} else if (!params.equals(other.params))
 			return false;
-		if (!Arrays.equals(yB2, other.yB2))
+		if (!yB2Batch.equals(other.yB2Batch))
 			return false;
-		if (!Arrays.equals(yB3, other.yB3))
+		if (!yB3Batch.equals(other.yB3Batch))
 			return false;
 		return true;
 	}
@@ -15,12 +15,13 @@ import javax.crypto.ShortBufferException;
 import crypto.ssa5.interfaces.SAA5MasterPrivateKey;
 import crypto.ssa5.interfaces.SAA5SlavePublicKey;
 import crypto.ssa5.spec.SAA5ParameterSpec;
+import matrix.ExponentRecoding;
 import matrix.ModularMatrix;
 
 public class SAA5MasterKeyAgreementSpi extends KeyAgreementSpi {
 	private SAA5ParameterSpec params;
-	private ModularMatrix NB;
-	private ModularMatrix xB;
+	// NB * xB, recoded
+	private ExponentRecoding NBxB;
 	private ModularMatrix ssk;
 
 	@Override
@@ -29,8 +30,10 @@ public class SAA5MasterKeyAgreementSpi extends KeyAgreementSpi {
 			throw new InvalidKeyException();
 		SAA5MasterPrivateKey mpk = (SAA5MasterPrivateKey) key;
 		params = mpk.getParams();
-		NB = mpk.getNB();
-		xB = mpk.getXB();
+		if (mpk instanceof MasterPrivateKey)
+			NBxB = ((MasterPrivateKey) mpk).getRecoding();
+		else
+			NBxB = new ExponentRecoding(mpk.getNB().multi(mpk.getXB(), params.getP().subtract(BigInteger.ONE)));
 	}
 
 	@Override
@@ -41,7 +44,7 @@ public class SAA5MasterKeyAgreementSpi extends KeyAgreementSpi {
 
 	@Override
 	protected Key engineDoPhase(Key key, boolean lastPhase) throws InvalidKeyException, IllegalStateException {
-		if (params == null || NB == null || xB == null)
+		if (params == null || NBxB == null)
 			throw new IllegalStateException();
 		if (!(key instanceof SAA5SlavePublicKey))
 			throw new InvalidKeyException();
@@ -50,7 +53,9 @@ public class SAA5MasterKeyAgreementSpi extends KeyAgreementSpi {
 
 		BigInteger p = params.getP();
 		ModularMatrix yA = ((SAA5SlavePublicKey) key).getYA();
-		ssk = yA.exponent(NB, p).exponent(xB, p);
+		// (yA^NB)^xB = yA^(NB * xB), the exponents are mod p - 1 and their
+		// digits are scanned once per key, not per agreement
+		ssk = yA.exponent(NBxB, p);
 		return new SecretSharedKey(params, ssk);
 	}
 
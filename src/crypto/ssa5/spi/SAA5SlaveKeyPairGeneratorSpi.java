@@ -10,13 +10,30 @@ import java.security.spec.AlgorithmParameterSpec;
 import java.util.Random;
 
 import crypto.ssa5.spec.SAA5SlavePublicKeyParameterSpec;
+import matrix.ExponentRecoding;
 import matrix.ModularMatrix;
-import matrix.generator.ModMatGen;
-import matrix.generator.rule.NoRules;
+import matrix.ModularMatrixBatch;
 
 public class SAA5SlaveKeyPairGeneratorSpi extends KeyPairGeneratorSpi {
 	private SAA5SlavePublicKeyParameterSpec params;
 	private Random random;
+	private final KeyMaterialPool pool;
+
+	public SAA5SlaveKeyPairGeneratorSpi() {
+		pool = null;
+	}
+
+	/**
+	 * A generator that takes its xA from 'pool' when it is initialized
+	 * with the parameters of the pool and a null random. Given a random of
+	 * its own, it makes them by that random as the generator without pool.
+	 *
+	 * @throws IllegalArgumentException
+	 *             the pool does not make KeyMaterialPool.Kind.SLAVE
+	 */
+	public SAA5SlaveKeyPairGeneratorSpi(KeyMaterialPool pool) {
+		this.pool = KeyMaterialPool.check(pool, KeyMaterialPool.Kind.SLAVE);
+	}
 
 	@Override
 	public void initialize(int keysize, SecureRandom random) {
@@ -32,37 +49,27 @@ public class SAA5SlaveKeyPairGeneratorSpi extends KeyPairGeneratorSpi {
 	@Override
 	public KeyPair generateKeyPair() {
 
-		int d = params.getParams().getD();
 		BigInteger p = params.getParams().getP();
-		int I = params.getParams().getI();
 
-		// Create Private Key
-		ModularMatrix[] xA = new ModularMatrix[I];
-		for (int i = 0; i < I; i++)
-			xA[i] = ModMatGen.createMatrix(new NoRules(random, p), d, p);
-		PrivateKey priK = new SlavePrivateKey(params.getParams(), xA);
+		// Create Private Key, made ahead by the pool if any and no random was
+		// given, as it does not depend on the master
+		SlaveMaterial m = (SlaveMaterial) KeyMaterialPool.poll(pool, params.getParams(), random);
+		if (m == null)
+			m = SlaveMaterial.generate(params.getParams(), KeyMaterialPool.random(pool, random), true);
+		ModularMatrixBatch xA = m.xA;
+		ExponentRecoding recoding = m.recoding;
 
-		// Create Public Key
-		ModularMatrix[] yB2 = params.getYB2();
-		BigInteger[][] data = new BigInteger[d][d];
-		for (int i = 0; i < d; i++)
-			for (int j = 0; j < d; j++) {
-				BigInteger v = BigInteger.ONE;
-				for (int t = 0; t < I; t++)
-					for (int k = 0; k < d; k++)
-						v = v.multiply(modPow(yB2[t].get(k, j), xA[t].get(i, k), p));
-				data[i][j] = v;
-			}
-		ModularMatrix yA = new ModularMatrix(data, p);
+		// Create Public Key and Secret Shared Key
+		ModularMatrixBatch yB3 = params.getYB3Batch();
+		ModularMatrixBatch[] yB = { params.getYB2Batch(), yB3 };
+		// yA[i][j] = Π_t Π_k yB2[t][k][j]^xA[t][i][k], ssk the same of yB3
+		// both in one sweep of the recoded xA, the entries run in parallel on
+		// matrix.MatrixPool (setPool to configure)
+		ModularMatrix[] res = ModularMatrixBatch.exponentReversely(yB, recoding, p);
+		ModularMatrix yA = res[0];
+		PrivateKey priK = new SlavePrivateKey(params.getParams(), xA, recoding, yB3, res[1]);
 		PublicKey pubK = new SlavePublicKey(params.getParams(), yA);
 
 		return new KeyPair(pubK, priK);
 	}
-
-	private static BigInteger modPow(BigInteger base, BigInteger exponent, BigInteger mod) {
-		if (base.equals(BigInteger.ZERO))
-			return BigInteger.ZERO;
-		else
-			return base.modPow(exponent, mod);
-	}
 }
@@ -0,0 +1,88 @@
+package crypto.ssa5.spi;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.util.Random;
+
+import crypto.ssa5.spec.SAA5ParameterSpec;
+import crypto.ssa5.spec.SAA5noSESlavePublicKeyParameterSpec;
+
+/**
+ * doPhase(Key[]) of SAA5noSEMasterKeyAgreementSpi for several slaves
+ * against engineDoPhase of each key, and against the secret of each slave
+ * agreed by SAA5noSESlaveKeyAgreementSpi with a decoded private key, which
+ * does not hold the secret of its generation.<BR>
+ * An empty array gives no secret; a key that is not a slave public key of
+ * the parameters, or null, is rejected wherever it is in the array.
+ */
+public class SAA5noSEDoPhaseTest {
+	public static void main(String[] args) throws GeneralSecurityException {
+		int suc = 0;
+		int num = 50;
+
+		Random random = new SecureRandom();
+		for (int i = 0; i < num; i++) {
+			int d = 2 + random.nextInt(7);
+			BigInteger p = BigInteger.probablePrime(32 + random.nextInt(128), random);
+			SAA5ParameterSpec params = new SAA5ParameterSpec(d, p, 1 + random.nextInt(5));
+			if (check(random, params, 1 + random.nextInt(6)))
+				suc++;
+		}
+		System.out.println(suc + "/" + num);
+	}
+
+	static boolean check(Random random, SAA5ParameterSpec params, int slaves) throws GeneralSecurityException {
+		KeyPair master = SAA5noSEMasterKeyPairGeneratorSpi.generateKeyPair(params, random);
+		SAA5noSESlaveKeyPairGeneratorSpi gen = new SAA5noSESlaveKeyPairGeneratorSpi();
+		gen.initialize(new SAA5noSESlavePublicKeyParameterSpec(master.getPublic()), new SecureRandom());
+		KeyPair[] slave = new KeyPair[slaves];
+		Key[] keys = new Key[slaves];
+		for (int n = 0; n < slaves; n++) {
+			slave[n] = gen.generateKeyPair();
+			keys[n] = slave[n].getPublic();
+		}
+
+		SAA5noSEMasterKeyAgreementSpi agreement = new SAA5noSEMasterKeyAgreementSpi();
+		try {
+			agreement.doPhase(keys);
+			return false;
+		} catch (IllegalStateException e) {
+		}
+		agreement.engineInit(master.getPrivate(), null);
+
+		SecretSharedKey[] batch = agreement.doPhase(keys);
+		if (batch.length != slaves || agreement.doPhase(new Key[0]).length != 0)
+			return false;
+		for (int n = 0; n < slaves; n++) {
+			Key single = agreement.engineDoPhase(keys[n], true);
+			SAA5noSESlaveKeyAgreementSpi s = new SAA5noSESlaveKeyAgreementSpi();
+			s.engineInit(new SlavePrivateKey(((SlavePrivateKey) slave[n].getPrivate()).toByteArray()), null);
+			Key secret = s.engineDoPhase(master.getPublic(), true);
+			if (!batch[n].getKey().equals(((SecretSharedKey) single).getKey())
+					|| !batch[n].getKey().equals(((SecretSharedKey) secret).getKey()))
+				return false;
+		}
+
+		// a slave of other parameters, the master's own key, and null
+		SAA5ParameterSpec other = new SAA5ParameterSpec(params.getD(), BigInteger.probablePrime(32, random),
+				params.getI());
+		KeyPair otherMaster = SAA5noSEMasterKeyPairGeneratorSpi.generateKeyPair(other, random);
+		gen.initialize(new SAA5noSESlavePublicKeyParameterSpec(otherMaster.getPublic()), new SecureRandom());
+		for (Key bad : new Key[] { gen.generateKeyPair().getPublic(), master.getPublic(), null }) {
+			Key[] mixed = new Key[slaves + 1];
+			int at = random.nextInt(slaves + 1);
+			for (int n = 0, k = 0; n < mixed.length; n++)
+				mixed[n] = (n == at) ? bad : keys[k++];
+			try {
+				agreement.doPhase(mixed);
+				return false;
+			} catch (InvalidKeyException e) {
+			}
+		}
+		return true;
+	}
+}
@@ -16,11 +16,12 @@ import crypto.ssa5.interfaces.SAA5MasterPrivateKey;
 import crypto.ssa5.interfaces.SAA5SlavePublicKey;
 import crypto.ssa5.spec.SAA5ParameterSpec;
 import matrix.ModularMatrix;
+import matrix.ModularMatrixBatch;
 
 public class SAA5noSEMasterKeyAgreementSpi extends KeyAgreementSpi {
 	private SAA5ParameterSpec params;
-	private ModularMatrix NB;
-	private ModularMatrix xB;
+	// NB * xB
+	private ModularMatrix NBxB;
 	private ModularMatrix ssk;
 
 	@Override
@@ -29,8 +30,10 @@ public class SAA5noSEMasterKeyAgreementSpi extends KeyAgreementSpi {
 			throw new InvalidKeyException();
 		SAA5MasterPrivateKey mpk = (SAA5MasterPrivateKey) key;
 		params = mpk.getParams();
-		NB = mpk.getNB();
-		xB = mpk.getXB();
+		if (mpk instanceof MasterPrivateKey)
+			NBxB = ((MasterPrivateKey) mpk).getNBxB();
+		else
+			NBxB = mpk.getNB().multi(mpk.getXB(), params.getP());
 	}
 
 	@Override
@@ -41,7 +44,7 @@ public class SAA5noSEMasterKeyAgreementSpi extends KeyAgreementSpi {
 
 	@Override
 	protected Key engineDoPhase(Key key, boolean lastPhase) throws InvalidKeyException, IllegalStateException {
-		if (params == null || NB == null || xB == null)
+		if (params == null || NBxB == null)
 			throw new IllegalStateException();
 		if (!(key instanceof SAA5SlavePublicKey))
 			throw new InvalidKeyException();
@@ -50,10 +53,41 @@ public class SAA5noSEMasterKeyAgreementSpi extends KeyAgreementSpi {
 
 		BigInteger p = params.getP();
 		ModularMatrix yA = ((SAA5SlavePublicKey) key).getYA();
-		ssk = yA.multi(NB, p).multi(xB, p);
+		ssk = yA.multi(NBxB, p);
 		return new SecretSharedKey(params, ssk);
 	}
 
+	/**
+	 * Agrees with many slaves at once, as engineDoPhase for each key.<BR>
+	 * yA of all keys are a batch, stacked into one (N d)×d matrix and
+	 * multiplied by NB * xB in a single parallel product.
+	 *
+	 * @throws InvalidKeyException
+	 *             a key is not a slave public key of the parameters
+	 * @throws IllegalStateException
+	 *             not initialized
+	 */
+	public SecretSharedKey[] doPhase(Key[] keys) throws InvalidKeyException, IllegalStateException {
+		if (params == null || NBxB == null)
+			throw new IllegalStateException();
+		ModularMatrix[] yA = new ModularMatrix[keys.length];
+		for (int n = 0; n < keys.length; n++) {
+			if (!(keys[n] instanceof SAA5SlavePublicKey))
+				throw new InvalidKeyException();
+			if (!params.equals(((SAA5SlavePublicKey) keys[n]).getParams()))
+				throw new InvalidKeyException();
+			yA[n] = ((SAA5SlavePublicKey) keys[n]).getYA();
+		}
+
+		SecretSharedKey[] res = new SecretSharedKey[keys.length];
+		if (keys.length == 0)
+			return res;
+		ModularMatrixBatch ssk = new ModularMatrixBatch(yA).multi(NBxB, params.getP());
+		for (int n = 0; n < keys.length; n++)
+			res[n] = new SecretSharedKey(params, ssk.get(n));
+		return res;
+	}
+
 	@Override
 	protected byte[] engineGenerateSecret() throws IllegalStateException {
 		if (ssk == null)
@@ -13,12 +13,31 @@ import java.util.Random;
 
 import crypto.ssa5.spec.SAA5ParameterSpec;
 import matrix.ModularMatrix;
+import matrix.ModularMatrixBatch;
 import matrix.generator.ModMatGen;
+import matrix.generator.SplittableDRBG;
 import matrix.generator.rule.NoRules;
 
 public class SAA5noSEMasterKeyPairGeneratorSpi extends KeyPairGeneratorSpi {
 	private SAA5ParameterSpec params;
 	private Random random;
+	private final KeyMaterialPool pool;
+
+	public SAA5noSEMasterKeyPairGeneratorSpi() {
+		pool = null;
+	}
+
+	/**
+	 * A generator that takes its key pairs from 'pool' when it is initialized
+	 * with the parameters of the pool and a null random. Given a random of
+	 * its own, it makes them by that random as the generator without pool.
+	 *
+	 * @throws IllegalArgumentException
+	 *             the pool does not make KeyMaterialPool.Kind.NOSE_MASTER
+	 */
+	public SAA5noSEMasterKeyPairGeneratorSpi(KeyMaterialPool pool) {
+		this.pool = KeyMaterialPool.check(pool, KeyMaterialPool.Kind.NOSE_MASTER);
+	}
 
 	@Override
 	public void initialize(int keysize, SecureRandom random) {
@@ -46,27 +65,29 @@ public class SAA5noSEMasterKeyPairGeneratorSpi extends KeyPairGeneratorSpi {
 
 	@Override
 	public KeyPair generateKeyPair() {
+		// made ahead by the pool, if any and no random was given
+		KeyPair pooled = (KeyPair) KeyMaterialPool.poll(pool, params, random);
+		return (pooled != null) ? pooled : generateKeyPair(params, KeyMaterialPool.random(pool, random));
+	}
+
+	/** Returns a new key pair of 'params'. */
+	static KeyPair generateKeyPair(SAA5ParameterSpec params, Random random) {
 		int d = params.getD();
 		BigInteger p = params.getP();
 		int I = params.getI();
 
-		// Create 4 Private Keys
-		ModularMatrix xB = ModMatGen.createMatrix(new NoRules(random, p), d, p);
-		ModularMatrix[] A = new ModularMatrix[I];
-		for (int i = 0; i < I; i++)
-			A[i] = ModMatGen.makeNotInvertibleMatrix(random, d, p);
-		ModularMatrix[] NB = ModMatGen.makeInvertibleMatrix(random, d, p);
+		// Create 4 Private Keys, each from its own stream of one seed, the
+		// rows of all in parallel on matrix.MatrixPool
+		SplittableDRBG drbg = new SplittableDRBG(random);
+		ModularMatrix xB = ModMatGen.createMatrix(NoRules::new, drbg.fork(0), d, p);
+		ModularMatrixBatch A = new ModularMatrixBatch(ModMatGen.makeNotInvertibleMatrices(drbg.fork(1), I, d, p));
+		ModularMatrix[] NB = ModMatGen.makeInvertibleMatrix(drbg.fork(2), d, p);
 
 		PrivateKey priK = new MasterPrivateKey(params, NB[1], xB);
 
-		// Create Public Key
-		ModularMatrix[] yB2 = new ModularMatrix[I];
-		for (int j = 0; j < I; j++)
-			yB2[j] = A[j].multi(NB[0], p);
-
-		ModularMatrix[] yB3 = new ModularMatrix[I];
-		for (int j = 0; j < I; j++)
-			yB3[j] = A[j].multi(xB, p);
+		// Create Public Key, each one product of the stacked A
+		ModularMatrixBatch yB2 = A.multi(NB[0], p);
+		ModularMatrixBatch yB3 = A.multi(xB, p);
 
 		PublicKey pubK = new MasterPublicKey(params, yB2, yB3);
 
@@ -16,10 +16,13 @@ import crypto.ssa5.interfaces.SAA5MasterPublicKey;
 import crypto.ssa5.interfaces.SAA5SlavePrivateKey;
 import crypto.ssa5.spec.SAA5ParameterSpec;
 import matrix.ModularMatrix;
+import matrix.ModularMatrixBatch;
 
 public class SAA5noSESlaveKeyAgreementSpi extends KeyAgreementSpi {
 	private SAA5ParameterSpec params;
-	private ModularMatrix[] xA;
+	private ModularMatrixBatch xA;
+	// the key of this provider, with the secret agreed at the key generation
+	private SlavePrivateKey key;
 	private ModularMatrix ssk;
 
 	@Override
@@ -28,7 +31,8 @@ public class SAA5noSESlaveKeyAgreementSpi extends KeyAgreementSpi {
 			throw new InvalidKeyException();
 		SAA5SlavePrivateKey spk = (SAA5SlavePrivateKey) key;
 		params = spk.getParams();
-		xA = spk.getXA();
+		xA = spk.getXABatch();
+		this.key = (spk instanceof SlavePrivateKey) ? (SlavePrivateKey) spk : null;
 	}
 
 	@Override
@@ -44,50 +48,18 @@ public class SAA5noSESlaveKeyAgreementSpi extends KeyAgreementSpi {
 		if (!params.equals(((SAA5MasterPublicKey) key).getParams()))
 			throw new InvalidKeyException();
 
-		int d = params.getD();
 		BigInteger p = params.getP();
-		int I = params.getI();
-		ModularMatrix[] yB3 = ((SAA5MasterPublicKey) key).getYB3();
+		ModularMatrixBatch yB3 = ((SAA5MasterPublicKey) key).getYB3Batch();
 
-		ModularMatrix[] xAyB3 = new ModularMatrix[I];
-		for (int j = 0; j < I; j++)
-			xAyB3[j] = xA[j].multi(yB3[j], p);
-
-		BigInteger[][] data = new BigInteger[d][d];
-
-		for (int i = 0; i < d; i++)
-			for (int j = 0; j < d; j++) {
-				data[i][j] = BigInteger.ZERO;
-			}
-
-		for (int k = 0; k < I; k++)
-			for (int i = 0; i < d; i++) {
-				for (int j = 0; j < d; j++) {
-					data[i][j] = data[i][j].add(xAyB3[k].get(i, j));
-				}
-			}
-
-
-//		for (int i = 0; i < d; i++)
-//			for (int j = 0; j < d; j++) {
-//				BigInteger v = BigInteger.ONE;
-//				for (int t = 0; t < I; t++)
-//					for (int k = 0; k < d; k++)
-//						v = v.multiply(modPow(yB3[t].get(k, j), xA[t].get(i, k), p));
-//				data[i][j] = v;
-//			}
-		ssk = new ModularMatrix(data, p);
+		// ssk = Σ_t xA[t] * yB3[t], agreed already at the key generation or
+		// as one product
+		ssk = (this.key == null) ? null : this.key.agreedSecret(yB3);
+		if (ssk == null)
+			ssk = xA.multiSum(yB3, p);
 
 		return new SecretSharedKey(params, ssk);
 	}
 
-	private static BigInteger modPow(BigInteger base, BigInteger exponent, BigInteger mod) {
-		if (base.equals(BigInteger.ZERO))
-			return BigInteger.ZERO;
-		else
-			return base.modPow(exponent, mod);
-	}
-
 	@Override
 	protected byte[] engineGenerateSecret() throws IllegalStateException {
 		if (ssk == null)
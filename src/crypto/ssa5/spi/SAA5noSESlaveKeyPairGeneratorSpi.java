@@ -11,12 +11,28 @@ import java.util.Random;
 
 import crypto.ssa5.spec.SAA5noSESlavePublicKeyParameterSpec;
 import matrix.ModularMatrix;
-import matrix.generator.ModMatGen;
-import matrix.generator.rule.NoRules;
+import matrix.ModularMatrixBatch;
 
 public class SAA5noSESlaveKeyPairGeneratorSpi extends KeyPairGeneratorSpi {
 	private SAA5noSESlavePublicKeyParameterSpec params;
 	private Random random;
+	private final KeyMaterialPool pool;
+
+	public SAA5noSESlaveKeyPairGeneratorSpi() {
+		pool = null;
+	}
+
+	/**
+	 * A generator that takes its xA from 'pool' when it is initialized
+	 * with the parameters of the pool and a null random. Given a random of
+	 * its own, it makes them by that random as the generator without pool.
+	 *
+	 * @throws IllegalArgumentException
+	 *             the pool does not make KeyMaterialPool.Kind.NOSE_SLAVE
+	 */
+	public SAA5noSESlaveKeyPairGeneratorSpi(KeyMaterialPool pool) {
+		this.pool = KeyMaterialPool.check(pool, KeyMaterialPool.Kind.NOSE_SLAVE);
+	}
 
 	@Override
 	public void initialize(int keysize, SecureRandom random) {
@@ -32,55 +48,25 @@ public class SAA5noSESlaveKeyPairGeneratorSpi extends KeyPairGeneratorSpi {
 	@Override
 	public KeyPair generateKeyPair() {
 
-		int d = params.getParams().getD();
 		BigInteger p = params.getParams().getP();
-		int I = params.getParams().getI();
-
-		// Create Private Key
-		ModularMatrix[] xA = new ModularMatrix[I];
-		for (int i = 0; i < I; i++)
-			xA[i] = ModMatGen.createMatrix(new NoRules(random, p), d, p);
-		PrivateKey priK = new SlavePrivateKey(params.getParams(), xA);
-
-		// Create Public Key
-		ModularMatrix[] yB2 = params.getYB2();
 
-		ModularMatrix[] xAyB2 = new ModularMatrix[I];
-		for (int j = 0; j < I; j++)
-			xAyB2[j] = xA[j].multi(yB2[j], p);
-
-		BigInteger[][] data = new BigInteger[d][d];
-
-		for (int i = 0; i < d; i++)
-			for (int j = 0; j < d; j++) {
-				data[i][j] = BigInteger.ZERO;
-			}
-
-		for (int k = 0; k < I; k++)
-			for (int i = 0; i < d; i++) {
-				for (int j = 0; j < d; j++) {
-					data[i][j] = data[i][j].add(xAyB2[k].get(i, j));
-				}
-			}
-//		for (int i = 0; i < d; i++)
-//			for (int j = 0; j < d; j++) {
-//				BigInteger v = BigInteger.ONE;
-//				for (int t = 0; t < I; t++)
-//					for (int k = 0; k < d; k++)
-//						v = v.multiply(modPow(yB2[t].get(k, j), xA[t].get(i, k), p));
-//				data[i][j] = v;
-//			}
-
-		ModularMatrix yA = new ModularMatrix(data, p);
+		// Create Private Key, made ahead by the pool if any and no random was
+		// given, as it does not depend on the master
+		SlaveMaterial m = (SlaveMaterial) KeyMaterialPool.poll(pool, params.getParams(), random);
+		if (m == null)
+			m = SlaveMaterial.generate(params.getParams(), KeyMaterialPool.random(pool, random), false);
+		ModularMatrixBatch xA = m.xA;
+
+		// Create Public Key and the secret with yB3 in one product,
+		// yA = Σ_t xA[t] * yB2[t], ssk = Σ_t xA[t] * yB3[t]
+		ModularMatrixBatch yB3 = params.getYB3Batch();
+		ModularMatrixBatch[] rs = { params.getYB2Batch(), yB3 };
+		ModularMatrix[] res = xA.multiSum(rs, p);
+		PrivateKey priK = new SlavePrivateKey(params.getParams(), xA, null, yB3, res[1]);
+
+		ModularMatrix yA = res[0];
 		PublicKey pubK = new SlavePublicKey(params.getParams(), yA);
 
 		return new KeyPair(pubK, priK);
 	}
-
-	private static BigInteger modPow(BigInteger base, BigInteger exponent, BigInteger mod) {
-		if (base.equals(BigInteger.ZERO))
-			return BigInteger.ZERO;
-		else
-			return base.modPow(exponent, mod);
-	}
 }
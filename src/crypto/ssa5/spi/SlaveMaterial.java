@@ -0,0 +1,41 @@
+package crypto.ssa5.spi;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import crypto.ssa5.spec.SAA5ParameterSpec;
+import matrix.ExponentRecoding;
+import matrix.ModularMatrixBatch;
+import matrix.generator.ModMatGen;
+import matrix.generator.SplittableDRBG;
+import matrix.generator.rule.NoRules;
+
+/**
+ * The private matrices xA of a slave and their recoding, which do not depend
+ * on the master and so can be made before it is known.
+ */
+final class SlaveMaterial {
+	final ModularMatrixBatch xA;
+	// null if xA is not to be recoded (noSE)
+	final ExponentRecoding recoding;
+
+	private SlaveMaterial(ModularMatrixBatch xA, ExponentRecoding recoding) {
+		this.xA = xA;
+		this.recoding = recoding;
+	}
+
+	/**
+	 * Returns new xA of 'params', each xA[t] from its own stream of one seed,
+	 * the rows of all in parallel on matrix.MatrixPool, and recoded if
+	 * 'recode'.
+	 */
+	static SlaveMaterial generate(SAA5ParameterSpec params, Random random, boolean recode) {
+		int d = params.getD();
+		BigInteger p = params.getP();
+		int I = params.getI();
+
+		SplittableDRBG drbg = new SplittableDRBG(random);
+		ModularMatrixBatch xA = new ModularMatrixBatch(ModMatGen.createMatrices(NoRules::new, drbg, I, d, p));
+		return new SlaveMaterial(xA, recode ? new ExponentRecoding(xA) : null);
+	}
+}
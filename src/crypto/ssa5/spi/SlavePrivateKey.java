@@ -1,26 +1,50 @@
 package crypto.ssa5.spi;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 
 import crypto.ssa5.interfaces.SAA5SlavePrivateKey;
 import crypto.ssa5.spec.SAA5ParameterSpec;
+import matrix.ExponentRecoding;
 import matrix.ModularMatrix;
+import matrix.ModularMatrixBatch;
 
 public class SlavePrivateKey implements SAA5SlavePrivateKey {
 	private static final long serialVersionUID = 3414514881901521860L;
 	private final SAA5ParameterSpec params;
 	private final ModularMatrix[] xA;
 
+	// xA in one stack, rebuilt by readObject
+	private transient ModularMatrixBatch xABatch;
+	// xA recoded for the exponentiations, not serialized
+	private transient volatile ExponentRecoding recoding;
+	// the secret agreed with yB3 of the master at the key generation
+	private final transient ModularMatrixBatch yB3;
+	private final transient ModularMatrix ssk;
+
 	SlavePrivateKey(SAA5ParameterSpec params, ModularMatrix[] xA) {
+		this(params, new ModularMatrixBatch(xA));
+	}
+
+	SlavePrivateKey(SAA5ParameterSpec params, ModularMatrixBatch xA) {
+		this(params, xA, null, null, null);
+	}
+
+	SlavePrivateKey(SAA5ParameterSpec params, ModularMatrixBatch xA, ExponentRecoding recoding,
+			ModularMatrixBatch yB3, ModularMatrix ssk) {
 		this.params = params;
-		this.xA = xA;
+		this.xA = xA.toArray();
+		this.xABatch = xA;
+		this.recoding = recoding;
+		this.yB3 = yB3;
+		this.ssk = ssk;
 	}
 
 	// Serialize
 	@Override
 	public byte[] toByteArray() {
 		byte[] arrayParams = params.toByteArray();
-		byte[] arrayXA = ByteArrayConverter.arrayToBytes(xA);
+		byte[] arrayXA = xABatch.toByteArray();
 
 		int length = arrayParams.length + arrayXA.length;
 		byte[] res = new byte[length];
@@ -36,7 +60,7 @@ public class SlavePrivateKey implements SAA5SlavePrivateKey {
 
 	@Override
 	public int byteArrayLength() {
-		return params.byteArrayLength() + xA[0].byteArrayLength() * params.getI();
+		return params.byteArrayLength() + xABatch.byteArrayLength();
 	}
 
 	// Deserialize
@@ -46,11 +70,15 @@ public class SlavePrivateKey implements SAA5SlavePrivateKey {
 		int I = params.getI();
 		pos += params.byteArrayLength();
 
-		xA = new ModularMatrix[I];
-		for (int i = 0; i < I; i++) {
-			xA[i] = new ModularMatrix(array, pos);
-			pos += xA[i].byteArrayLength();
-		}
+		xABatch = new ModularMatrixBatch(array, pos, I);
+		xA = xABatch.toArray();
+		yB3 = null;
+		ssk = null;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		xABatch = new ModularMatrixBatch(xA);
 	}
 
 	@Override
@@ -75,7 +103,30 @@ public class SlavePrivateKey implements SAA5SlavePrivateKey {
 
 	@Override
 	public ModularMatrix[] getXA() {
-		return xA;
+		return xABatch.toArray();
+	}
+
+	@Override
+	public ModularMatrixBatch getXABatch() {
+		return xABatch;
+	}
+
+	/** Returns xA recoded once for every exponentiation by it. */
+	ExponentRecoding getRecoding() {
+		ExponentRecoding r = recoding;
+		if (r == null)
+			recoding = r = new ExponentRecoding(xABatch);
+		return r;
+	}
+
+	/**
+	 * Returns the secret agreed with yB3 at the key generation, or null if
+	 * it was agreed with another.
+	 */
+	ModularMatrix agreedSecret(ModularMatrixBatch yB3) {
+		if (ssk == null || !yB3.equals(this.yB3))
+			return null;
+		return ssk;
 	}
 
 	@Override
@@ -92,7 +143,7 @@ public class SlavePrivateKey implements SAA5SlavePrivateKey {
 				return false;
 		} else if (!params.equals(other.params))
 			return false;
-		if (!Arrays.equals(xA, other.xA))
+		if (!xABatch.equals(other.xABatch))
 			return false;
 		return true;
 	}
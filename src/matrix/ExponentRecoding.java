@@ -0,0 +1,208 @@
+package matrix;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * The exponents of a multi exponentiation, recoded once so that many
+ * bases can be raised to them
+ * ({@link ModularMatrix#exponentReversely(ModularMatrix[][], ExponentRecoding, java.math.BigInteger)},
+ * {@link ModularMatrix#exponent(ExponentRecoding, java.math.BigInteger)}).<BR>
+ * The entry (i, j) of exponentReversely is Π<sub>t</sub>Π<sub>k</sub>
+ * bases[t][k][j]<sup>exps[t][i][k]</sup>, whose exponents depend only on
+ * the row i, and the entry (i, j) of exponent is Π<sub>k</sub>
+ * base[i][k]<sup>exps[k][j]</sup>, whose exponents depend only on the
+ * column j. Every row (column) is recoded into sliding window digits,
+ * highest position first. When the terms are so many that the tables of the
+ * windows would not pay, MultiExp gathers them in buckets (Pippenger) and
+ * reads the exponents bit by bit instead, so nothing is recoded. Large
+ * exponents (mod a prime) also keep their split for the Strassen recursion
+ * in the exponent, built on the first use once it is enabled.<BR>
+ * A recoding is immutable and can be shared between threads.
+ */
+public final class ExponentRecoding {
+	// at most this many table entries per line
+	private static final long MAX_ENTRIES = 1L << 16;
+
+	final ModularMatrix[] exps;
+	final boolean reversely;
+
+	// the entries of a line have their own exponents, the terms of an entry
+	// their own bases
+	final int entries;
+	final int terms;
+	final int bits;
+	final int xl;
+	// exponents as limbs, [t][(row * cols + col) * xl]
+	final int[][] x;
+
+	// Straus window if > 0, otherwise Pippenger with -w bits
+	final int w;
+	// digits of the entry e, highest position first. The position is in
+	// pos[e], and term << 8 | (digit >>> 1) in code[e]
+	final int[][] pos;
+	final int[][] code;
+
+	// the split of the exponents for Strassen, built on the first use
+	private volatile Strassen.Plan plan;
+
+	/**
+	 * Recodes the exponents of exponentReversely.
+	 *
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             the row sizes of exps are different
+	 */
+	public ExponentRecoding(ModularMatrix[] exps) {
+		this(exps, true);
+	}
+
+	/**
+	 * Recodes the slices of 'exps' as the exponents of exponentReversely.
+	 */
+	public ExponentRecoding(ModularMatrixBatch exps) {
+		this(exps.toArray(), true);
+	}
+
+	/**
+	 * Recodes the exponents of exponent.
+	 */
+	public ExponentRecoding(ModularMatrix exps) {
+		this(new ModularMatrix[] { exps }, false);
+	}
+
+	ExponentRecoding(ModularMatrix[] exps, boolean reversely) {
+		this.exps = exps.clone();
+		this.reversely = reversely;
+		entries = reversely ? exps[0].rows : exps[0].cols;
+
+		int k = 0, b = 1;
+		for (int t = 0; t < exps.length; t++) {
+			ModularMatrix e = exps[t];
+			if ((reversely ? e.rows : e.cols) != entries)
+				throw new ArrayIndexOutOfBoundsException("exps[0]:(" + exps[0].rows + "," + exps[0].cols + "), exps["
+						+ t + "]:(" + e.rows + "," + e.cols + ")");
+			k += reversely ? e.cols : e.rows;
+			b = Math.max(b, e.getModulus().bitLength());
+		}
+		terms = k;
+		bits = b;
+		xl = LimbModulus.limbs(bits);
+		x = new int[exps.length][];
+		for (int t = 0; t < exps.length; t++) {
+			ModularMatrix e = exps[t];
+			x[t] = new int[e.rows * e.cols * xl];
+			for (int i = 0; i < e.rows; i++)
+				for (int j = 0; j < e.cols; j++)
+					LimbModulus.load(e.data[i][j], x[t], (i * e.cols + j) * xl, xl);
+		}
+		w = window();
+
+		if (w > 0) {
+			pos = new int[entries][];
+			code = new int[entries][];
+			MatrixPool.forRange(entries, Math.max(1, (long) terms * bits / Long.SIZE), (from, to) -> {
+				int size = terms * ((bits + w - 1) / w);
+				int[] head = new int[bits];
+				int[] next = new int[size];
+				int[] c = new int[size];
+				for (int e = from; e < to; e++)
+					recode(e, head, next, c);
+			});
+		} else {
+			pos = null;
+			code = null;
+		}
+	}
+
+	/** Chooses the Straus window or the Pippenger bucket width by cost. */
+	private int window() {
+		long best = Long.MAX_VALUE;
+		int res = 1;
+		for (int s = 1; s <= 8; s++) {
+			long size = (long) terms << (s - 1);
+			if (size > MAX_ENTRIES && s > 1)
+				break;
+			long cost = size / entries + (long) terms * bits / (s + 1);
+			if (cost < best) {
+				best = cost;
+				res = s;
+			}
+		}
+		for (int c = 1; c <= 16; c++) {
+			long cost = (long) (bits + c - 1) / c * (terms + (2L << c));
+			if (cost < best) {
+				best = cost;
+				res = -c;
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Sliding window recoding of every term of the entry 'e'. The digits
+	 * ending at bit 'p' are first linked from head[p] through next[].
+	 */
+	private void recode(int e, int[] head, int[] next, int[] c) {
+		Arrays.fill(head, -1);
+		int cnt = 0;
+		int s = 0;
+		for (int t = 0; t < exps.length; t++)
+			for (int k = 0; k < depth(t); k++, s++) {
+				int off = exponentOffset(t, k, e);
+				for (int i = bits - 1; i >= 0; i--) {
+					if (bit(x[t], off, i) == 0)
+						continue;
+					int lo = Math.max(0, i - w + 1);
+					while (bit(x[t], off, lo) == 0)
+						lo++;
+					c[cnt] = s << 8 | (bits(x[t], off, lo, i - lo + 1) >>> 1);
+					next[cnt] = head[lo];
+					head[lo] = cnt++;
+					i = lo;
+				}
+			}
+
+		pos[e] = new int[cnt];
+		code[e] = new int[cnt];
+		int n = 0;
+		for (int p = bits - 1; p >= 0; p--)
+			for (int h = head[p]; h >= 0; h = next[h]) {
+				pos[e][n] = p;
+				code[e][n++] = c[h];
+			}
+	}
+
+	/** Returns the exponents. */
+	public ModularMatrix[] getExponents() {
+		return exps.clone();
+	}
+
+	/** Returns the split of the exponents mod 'order' (p - 1). */
+	Strassen.Plan plan(BigInteger order) {
+		Strassen.Plan res = plan;
+		if (res == null || !res.order.equals(order))
+			plan = res = Strassen.plan(exps, reversely, order);
+		return res;
+	}
+
+	int depth(int t) {
+		return reversely ? exps[t].cols : exps[t].rows;
+	}
+
+	// offset of the exponent of term (t, k) for the entry 'e' of a line
+	int exponentOffset(int t, int k, int e) {
+		ModularMatrix m = exps[t];
+		return (reversely ? e * m.cols + k : k * m.cols + e) * xl;
+	}
+
+	static int bit(int[] a, int off, int i) {
+		return (a[off + (i >>> 5)] >>> (i & 31)) & 1;
+	}
+
+	static int bits(int[] a, int off, int from, int len) {
+		int res = 0;
+		for (int i = len - 1; i >= 0; i--)
+			res = (res << 1) | bit(a, off, from + i);
+		return res;
+	}
+}
@@ -0,0 +1,231 @@
+package matrix;
+
+import java.math.BigInteger;
+
+/**
+ * Precomputed powers of a fixed base for many exponentiations (mod m).<BR>
+ * The table holds base<sup>j 2<sup>wi</sup></sup> for every w bit digit j
+ * and digit position i, so base<sup>e</sup> costs one multiplication per
+ * nonzero digit of e and no squaring. The window w is chosen from the
+ * expected number of exponentiations. Odd moduli beyond the long range
+ * use the Montgomery slabs of LimbModulus; an even one has no table and
+ * exponentiates by BigInteger.modPow.<BR>
+ * As ModularMatrix.schurExp, a zero base gives 0 even for the exponent 0.
+ * A table is immutable and can be shared between threads.
+ */
+public final class FixedBaseTable {
+	// at most this many table entries
+	private static final long MAX_ENTRIES = 1L << 16;
+
+	private final BigInteger base;
+	// 0 as a raw base, 0^0 = 0
+	private final boolean zero;
+	private final BigInteger mod;
+	private final int maxBits;
+	private final int w;
+	private final int digits;
+
+	// long engine
+	private final LongModulus lmod;
+	private final long[] ltable;
+
+	// limb engine
+	private final LimbModulus limb;
+	private final int[] table;
+
+	/**
+	 * @param base
+	 *            The base.
+	 * @param mod
+	 *            The modulus.
+	 * @param maxExponentBits
+	 *            The bit length of the largest exponent. Larger exponents are
+	 *            still accepted, but computed without the table.
+	 * @param uses
+	 *            The expected number of exponentiations.
+	 * @throws IllegalArgumentException
+	 *             mod < 2
+	 */
+	public FixedBaseTable(BigInteger base, BigInteger mod, int maxExponentBits, long uses) {
+		if (mod.compareTo(new BigInteger("2")) < 0)
+			throw new IllegalArgumentException("mod must be greater or equals to 2.");
+		zero = base.signum() == 0;
+		this.base = base.mod(mod);
+		this.mod = mod;
+		maxBits = Math.max(1, maxExponentBits);
+
+		lmod = (LongModulus.fits(mod) && maxBits < Long.SIZE) ? new LongModulus(mod.longValue()) : null;
+		limb = (lmod == null && LimbModulus.fits(mod)) ? new LimbModulus(mod) : null;
+		w = (lmod == null && limb == null) ? 0 : window(maxBits, uses);
+		digits = (w == 0) ? 0 : (maxBits + w - 1) / w;
+		ltable = (lmod != null) ? longTable() : null;
+		table = (limb != null) ? limbTable() : null;
+	}
+
+	private long[] longTable() {
+		int span = 1 << w;
+		long[] res = new long[digits * span];
+		long b = base.longValue();
+		for (int i = 0; i < digits; i++) {
+			int row = i * span;
+			res[row] = 1;
+			for (int j = 1; j < span; j++)
+				res[row + j] = lmod.mul(res[row + j - 1], b);
+			b = lmod.mul(res[row + span - 1], b);
+		}
+		return res;
+	}
+
+	private int[] limbTable() {
+		int span = 1 << w;
+		int n = limb.size();
+		long[] t = limb.newScratch();
+		int[] res = new int[digits * span * n];
+		int[] b = new int[n];
+		limb.reduce(base, b, 0);
+		limb.toMontgomery(b, 0, b, 0, t);
+		for (int i = 0; i < digits; i++) {
+			int row = i * span * n;
+			limb.one(res, row, t);
+			for (int j = 1; j < span; j++)
+				limb.mul(res, row + (j - 1) * n, b, 0, res, row + j * n, t);
+			limb.mul(res, row + (span - 1) * n, b, 0, b, 0, t);
+		}
+		return res;
+	}
+
+	/**
+	 * The window minimizing the cost of building the table and of 'uses'
+	 * exponentiations from it, digits * (2<sup>w</sup> + uses).
+	 */
+	static int window(int bits, long uses) {
+		int best = 1;
+		long bestCost = Long.MAX_VALUE;
+		for (int w = 1; w <= 16; w++) {
+			long d = (bits + w - 1) / w;
+			if (d << w > MAX_ENTRIES)
+				break;
+			long cost = d * ((1L << w) + uses);
+			if (cost < bestCost) {
+				bestCost = cost;
+				best = w;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns true if a table for 'uses' exponentiations is expected to beat
+	 * exponentiating one by one.
+	 */
+	static boolean pays(BigInteger mod, int exponentBits, long uses) {
+		if (!LongModulus.fits(mod) && !LimbModulus.fits(mod))
+			return false;
+		int w = window(exponentBits, uses);
+		long digits = (exponentBits + w - 1) / w;
+		// a ladder costs more than one multiplication per exponent bit, but
+		// modPow's multiplication is about twice as fast as ours
+		return 2 * digits * ((1L << w) + uses) < (long) exponentBits * uses;
+	}
+
+	public BigInteger getBase() {
+		return base;
+	}
+
+	public BigInteger getModulus() {
+		return mod;
+	}
+
+	/**
+	 * Returns base<sup>exponent</sup> (mod m). 0<sup>0</sup>=0
+	 */
+	public BigInteger pow(BigInteger exponent) {
+		if (zero)
+			return BigInteger.ZERO;
+		if (exponent.signum() < 0 || exponent.bitLength() > maxBits || w == 0)
+			return base.modPow(exponent, mod);
+		if (lmod != null)
+			return BigInteger.valueOf(pow(exponent.longValue()));
+		int n = limb.size();
+		int[] e = new int[LimbModulus.limbs(maxBits)];
+		int[] v = new int[n];
+		long[] t = limb.newScratch();
+		LimbModulus.load(exponent, e, 0, e.length);
+		pow(e, v, t);
+		return limb.toBigInteger(v, 0);
+	}
+
+	// long engine, 0 <= exponent < 2^maxBits
+	long pow(long exponent) {
+		if (zero)
+			return 0;
+		int span = 1 << w;
+		int mask = span - 1;
+		long v = 1;
+		for (int i = 0; i < digits && exponent != 0; i++) {
+			int j = (int) exponent & mask;
+			if (j != 0)
+				v = lmod.mul(v, ltable[i * span + j]);
+			exponent >>>= w;
+		}
+		return v;
+	}
+
+	// limb engine, leaves base^e in normal form in v
+	private void pow(int[] e, int[] v, long[] t) {
+		int n = limb.size();
+		int span = 1 << w;
+		limb.one(v, 0, t);
+		for (int i = 0; i < digits; i++) {
+			int j = digit(e, i * w, w);
+			if (j != 0)
+				limb.mul(v, 0, table, (i * span + j) * n, v, 0, t);
+		}
+		limb.fromMontgomery(v, 0, v, 0, t);
+	}
+
+	private static int digit(int[] e, int pos, int w) {
+		int q = pos >>> 5;
+		int r = pos & 31;
+		long x = e[q] & 0xFFFFFFFFL;
+		if (q + 1 < e.length)
+			x |= (e[q + 1] & 0xFFFFFFFFL) << 32;
+		return (int) (x >>> r) & ((1 << w) - 1);
+	}
+
+	/**
+	 * Returns a matrix M : M[i][j] = base<sup>exps[i][j]</sup> (mod m).
+	 * 0<sup>0</sup>=0
+	 */
+	public ModularMatrix schurExp(ModularMatrix exps) {
+		int rows = exps.rows;
+		int cols = exps.cols;
+		BigInteger[][] res = new BigInteger[rows][cols];
+		if (zero || w == 0 || exps.getModulus().bitLength() > maxBits) {
+			long cost = MatrixPool.powCost(exps.getModulus().bitLength(), mod.bitLength());
+			MatrixPool.forRange(rows * cols, cost, (from, to) -> {
+				for (int e = from; e < to; e++)
+					res[e / cols][e % cols] = pow(exps.data[e / cols][e % cols]);
+			});
+			return ModularMatrix.ofReduced(res, mod);
+		}
+
+		long cost = digits * MatrixPool.mulCost(mod.bitLength());
+		MatrixPool.forRange(rows * cols, cost, (from, to) -> {
+			if (lmod != null) {
+				for (int e = from; e < to; e++)
+					res[e / cols][e % cols] = BigInteger.valueOf(pow(exps.data[e / cols][e % cols].longValue()));
+				return;
+			}
+			int[] x = new int[LimbModulus.limbs(maxBits)];
+			int[] v = new int[limb.size()];
+			long[] t = limb.newScratch();
+			for (int e = from; e < to; e++) {
+				LimbModulus.load(exps.data[e / cols][e % cols], x, 0, x.length);
+				pow(x, v, t);
+				res[e / cols][e % cols] = limb.toBigInteger(v, 0);
+			}
+		});
+		return ModularMatrix.ofReduced(res, mod);
+	}
+}
@@ -0,0 +1,91 @@
+package matrix;
+
+import java.math.BigInteger;
+
+/**
+ * Fraction free (Bareiss) elimination over the integers. Every division is
+ * exact, so det and adjugate are exact in O(d<sup>3</sup>) operations while
+ * the entries grow only to the size of a minor.
+ */
+final class FractionFree {
+	private FractionFree() {
+	}
+
+	/** Returns det(a) over Z. 'a' is overwritten. */
+	static BigInteger det(BigInteger[][] a) {
+		int n = a.length;
+		BigInteger prev = BigInteger.ONE;
+		boolean negate = false;
+		for (int k = 0; k < n; k++) {
+			int p = pivot(a, k);
+			if (p < 0)
+				return BigInteger.ZERO;
+			if (p != k) {
+				swap(a, p, k);
+				negate = !negate;
+			}
+			for (int i = k + 1; i < n; i++) {
+				for (int j = k + 1; j < n; j++)
+					a[i][j] = a[k][k].multiply(a[i][j]).subtract(a[i][k].multiply(a[k][j])).divide(prev);
+				a[i][k] = BigInteger.ZERO;
+			}
+			prev = a[k][k];
+		}
+		return negate ? prev.negate() : prev;
+	}
+
+	/**
+	 * Stores adj(a) in 'adj' and returns det(a) over Z. If det(a) = 0, 'adj' is
+	 * left untouched.
+	 */
+	static BigInteger adjugate(BigInteger[][] a, BigInteger[][] adj) {
+		int n = a.length;
+		// [a | I], reduced to [D I | D a^-1] with D = +-det(a)
+		BigInteger[][] m = new BigInteger[n][2 * n];
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++) {
+				m[i][j] = a[i][j];
+				m[i][n + j] = (i == j) ? BigInteger.ONE : BigInteger.ZERO;
+			}
+
+		BigInteger prev = BigInteger.ONE;
+		boolean negate = false;
+		for (int k = 0; k < n; k++) {
+			int p = pivot(m, k);
+			if (p < 0)
+				return BigInteger.ZERO;
+			if (p != k) {
+				swap(m, p, k);
+				negate = !negate;
+			}
+			for (int i = 0; i < n; i++) {
+				if (i == k)
+					continue;
+				for (int j = k + 1; j < 2 * n; j++)
+					m[i][j] = m[k][k].multiply(m[i][j]).subtract(m[i][k].multiply(m[k][j])).divide(prev);
+				if (i < k)
+					m[i][i] = m[k][k];
+				m[i][k] = BigInteger.ZERO;
+			}
+			prev = m[k][k];
+		}
+
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++)
+				adj[i][j] = negate ? m[i][n + j].negate() : m[i][n + j];
+		return negate ? prev.negate() : prev;
+	}
+
+	private static int pivot(BigInteger[][] a, int k) {
+		for (int i = k; i < a.length; i++)
+			if (a[i][k].signum() != 0)
+				return i;
+		return -1;
+	}
+
+	private static void swap(BigInteger[][] a, int i, int j) {
+		BigInteger[] t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+}
@@ -1,5 +1,7 @@
 package matrix;
 
+import java.math.BigInteger;
+
 public class IntegerMatrix extends AbstractMatrix<IntegerMatrix, Integer> {
 	public IntegerMatrix(Integer[][] integer) {
 		super(integer.length, integer[0].length, integer);
@@ -130,16 +132,18 @@ public class IntegerMatrix extends AbstractMatrix<IntegerMatrix, Integer> {
 		if (exponent == 0)
 			return idm(rows);
 
-		IntegerMatrix res = this;
-
+		IntegerMatrix base = this;
 		if (exponent < 0) {
-			res = res.inverse();
+			base = base.inverse();
 			exponent = -exponent;
 		}
 
-		for (int i = 1; i < exponent; i++)
-			res = res.multi(this);
-
+		IntegerMatrix res = base;
+		for (int i = 30 - Integer.numberOfLeadingZeros(exponent); i >= 0; i--) {
+			res = res.multi(res);
+			if (((exponent >>> i) & 1) == 1)
+				res = res.multi(base);
+		}
 		return res;
 	}
 
@@ -231,19 +235,16 @@ public class IntegerMatrix extends AbstractMatrix<IntegerMatrix, Integer> {
 	public Integer det() {
 		if (rows != cols)
 			throw new ArithmeticException("rows A:" + rows + ",column A:" + cols);
-		return subDet();
+		return FractionFree.det(toBigInteger()).intValue();
 	}
 
-	// 余因子展開
-	private Integer subDet() {
-		if (rows == 1 && cols == 1)
-			return get(0, 0);
-		else {
-			Integer sc = 0;
-			for (int i = 0; i < rows; i++)
-				sc += sign(i, 0) * get(i, 0) * (subMatrix(i, 0).subDet());
-			return sc;
-		}
+	// 分数を使わない消去法(Bareiss)のための多倍長整数表現
+	private BigInteger[][] toBigInteger() {
+		BigInteger[][] res = new BigInteger[rows][cols];
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				res[i][j] = BigInteger.valueOf(data[i][j]);
+		return res;
 	}
 
 	@Override
@@ -255,12 +256,13 @@ public class IntegerMatrix extends AbstractMatrix<IntegerMatrix, Integer> {
 	public IntegerMatrix inverse() throws NotInvertibleException {
 		if (rows != cols)
 			throw new ArithmeticException("正方行列ではありません");
-		if (!(det() == 1))
+		BigInteger[][] adj = new BigInteger[rows][cols];
+		if (!FractionFree.adjugate(toBigInteger(), adj).equals(BigInteger.ONE))
 			throw new NotInvertibleException();
 		Integer[][] newData = new Integer[rows][cols];
 		for (int i = 0; i < rows; i++)
 			for (int j = 0; j < cols; j++)
-				newData[i][j] = cofactor(j, i);
+				newData[i][j] = adj[i][j].intValue();
 		return new IntegerMatrix(newData);
 	}
 }
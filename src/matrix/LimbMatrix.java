@@ -0,0 +1,66 @@
+package matrix;
+
+import java.math.BigInteger;
+
+/**
+ * A matrix as one slab of fixed width limbs, the large modulus counterpart of
+ * LongModularMatrix. Kernels run in the Montgomery domain of a LimbModulus
+ * on the slabs of the Workspace, and allocate nothing per element but the
+ * BigInteger results.
+ */
+final class LimbMatrix {
+	final int rows;
+	final int cols;
+	final int limbs;
+	final int[] data;
+
+	// 'd' holds at least r * c * l limbs
+	private LimbMatrix(int r, int c, int l, int[] d) {
+		rows = r;
+		cols = c;
+		limbs = l;
+		data = d;
+	}
+
+	/** Values of mat reduced by 'mod', in normal form, in the slab 'd'. */
+	static LimbMatrix reduced(ModularMatrix mat, LimbModulus mod, int[] d) {
+		LimbMatrix res = new LimbMatrix(mat.rows, mat.cols, mod.size(), d);
+		for (int i = 0; i < mat.rows; i++)
+			for (int j = 0; j < mat.cols; j++)
+				mod.reduce(mat.data[i][j], res.data, (i * mat.cols + j) * res.limbs);
+		return res;
+	}
+
+	/**
+	 * Writes l * r (mod 'mod') in normal form into the rows 'res'. The slabs
+	 * are the Workspace of this thread.
+	 */
+	static void multi(ModularMatrix l, ModularMatrix r, LimbModulus mod, BigInteger[][] res) {
+		int n = mod.size();
+		Workspace ws = Workspace.acquire();
+		try {
+			LimbMatrix a = reduced(l, mod, ws.ints(Workspace.LEFT, l.rows * l.cols * n));
+			LimbMatrix b = reduced(r, mod, ws.ints(Workspace.RIGHT, r.rows * r.cols * n));
+			long[] t = ws.longs(Workspace.SCRATCH, 2 * n + 2);
+			// reduce(Σ a * (b R^2)) = Σ a * b
+			for (int e = 0; e < r.rows * r.cols; e++)
+				mod.toMontgomery2(b.data, e * n, b.data, e * n, t);
+
+			long cost = (long) l.cols * r.cols * MatrixPool.mulCost(mod.getModulus().bitLength());
+			MatrixPool.forRange(l.rows, cost, (from, to) -> {
+				long[] acc = mod.newAccumulator();
+				int[] v = new int[n];
+				byte[] buf = new byte[4 * n + 1];
+				for (int i = from; i < to; i++)
+					for (int j = 0; j < r.cols; j++) {
+						for (int k = 0; k < l.cols; k++)
+							mod.mulAdd(a.data, (i * l.cols + k) * n, b.data, (k * r.cols + j) * n, acc);
+						mod.reduce(acc, v, 0);
+						res[i][j] = mod.toBigInteger(v, 0, buf);
+					}
+			});
+		} finally {
+			ws.release();
+		}
+	}
+}
@@ -0,0 +1,455 @@
+package matrix;
+
+import java.math.BigInteger;
+
+/**
+ * Montgomery arithmetic modulo an odd modulus of up to 4096 bits.<BR>
+ * An element is a fixed number of 32 bit limbs (little endian) stored at an
+ * offset of an int array, so a whole matrix lives in one slab and no
+ * operation allocates. Scratch space is supplied by the caller through
+ * {@link #newScratch()}.
+ */
+public final class LimbModulus {
+	public static final int MAX_BITS = 4096;
+	private static final long MASK = 0xFFFFFFFFL;
+
+	private final BigInteger modulus;
+	private final int n;
+	private final int[] m;
+	private final int m0inv;
+	private final int[] r2;
+	private final int[] r3;
+	private final int[] unit;
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             modulus is even, lower than 3 or larger than MAX_BITS
+	 */
+	public LimbModulus(BigInteger modulus) {
+		if (!fits(modulus))
+			throw new IllegalArgumentException("mod must be odd and lower than 2^" + MAX_BITS + ".(" + modulus + ")");
+		this.modulus = modulus;
+		n = limbs(modulus.bitLength());
+		m = new int[n];
+		load(modulus, m, 0, n);
+
+		// -m^-1 mod 2^32
+		int inv = m[0];
+		for (int i = 0; i < 4; i++)
+			inv *= 2 - m[0] * inv;
+		m0inv = -inv;
+
+		r2 = new int[n];
+		load(BigInteger.ONE.shiftLeft(64 * n).mod(modulus), r2, 0, n);
+		r3 = new int[n];
+		load(BigInteger.ONE.shiftLeft(96 * n).mod(modulus), r3, 0, n);
+		unit = new int[n];
+		unit[0] = 1;
+	}
+
+	/** Returns true if the modulus can be handled by this class. */
+	public static boolean fits(BigInteger modulus) {
+		return modulus.testBit(0) && modulus.compareTo(BigInteger.TWO) > 0 && modulus.bitLength() <= MAX_BITS;
+	}
+
+	/** Returns the number of limbs to hold a value of bitLength bits. */
+	public static int limbs(int bitLength) {
+		return Math.max(1, (bitLength + 31) / 32);
+	}
+
+	public BigInteger getModulus() {
+		return modulus;
+	}
+
+	/** Returns the number of limbs of an element. */
+	public int size() {
+		return n;
+	}
+
+	public long[] newScratch() {
+		return new long[2 * n + 2];
+	}
+
+	/** Returns an accumulator for mulAdd. */
+	public long[] newAccumulator() {
+		return new long[2 * n + 2];
+	}
+
+	// ------------------------------------------------------------
+	// conversion
+
+	/** Stores a non-negative value into 'len' limbs. */
+	public static void load(BigInteger val, int[] dst, int off, int len) {
+		byte[] b = val.toByteArray();
+		for (int i = 0; i < len; i++) {
+			int v = 0;
+			for (int k = 0; k < 4; k++) {
+				int pos = b.length - 1 - (4 * i + k);
+				if (pos >= 0)
+					v |= (b[pos] & 0xFF) << (8 * k);
+			}
+			dst[off + i] = v;
+		}
+	}
+
+	/** Returns the value of 'len' limbs. */
+	public static BigInteger store(int[] src, int off, int len) {
+		return store(src, off, len, new byte[4 * len + 1]);
+	}
+
+	/**
+	 * Returns the value of 'len' limbs, through the buffer 'b' of at least
+	 * 4 * len + 1 bytes.
+	 */
+	public static BigInteger store(int[] src, int off, int len, byte[] b) {
+		int size = 4 * len + 1;
+		// the sign byte, non-negative
+		b[0] = 0;
+		for (int i = 0; i < len; i++) {
+			int v = src[off + i];
+			int pos = size - 1 - 4 * i;
+			b[pos] = (byte) v;
+			b[pos - 1] = (byte) (v >>> 8);
+			b[pos - 2] = (byte) (v >>> 16);
+			b[pos - 3] = (byte) (v >>> 24);
+		}
+		return new BigInteger(b, 0, size);
+	}
+
+	/** Stores val (mod m) into an element. */
+	public void reduce(BigInteger val, int[] dst, int off) {
+		if (val.signum() < 0 || val.compareTo(modulus) >= 0)
+			val = val.mod(modulus);
+		load(val, dst, off, n);
+	}
+
+	public BigInteger toBigInteger(int[] src, int off) {
+		return store(src, off, n);
+	}
+
+	/** toBigInteger through a buffer of at least 4 * size() + 1 bytes. */
+	public BigInteger toBigInteger(int[] src, int off, byte[] buf) {
+		return store(src, off, n, buf);
+	}
+
+	public static boolean isZero(int[] a, int off, int len) {
+		for (int i = 0; i < len; i++)
+			if (a[off + i] != 0)
+				return false;
+		return true;
+	}
+
+	/** Returns the bit length of a value of 'len' limbs. */
+	public static int bitLength(int[] a, int off, int len) {
+		for (int i = len - 1; i >= 0; i--)
+			if (a[off + i] != 0)
+				return 32 * i + 32 - Integer.numberOfLeadingZeros(a[off + i]);
+		return 0;
+	}
+
+	private static int bit(int[] e, int off, int i) {
+		return (e[off + (i >>> 5)] >>> (i & 31)) & 1;
+	}
+
+	// ------------------------------------------------------------
+	// additive operations
+
+	/** r = a + b (mod m) */
+	public void add(int[] a, int aOff, int[] b, int bOff, int[] r, int rOff) {
+		long c = 0;
+		for (int i = 0; i < n; i++) {
+			c += (a[aOff + i] & MASK) + (b[bOff + i] & MASK);
+			r[rOff + i] = (int) c;
+			c >>>= 32;
+		}
+		if (c != 0 || !less(r, rOff))
+			subtractModulus(r, rOff);
+	}
+
+	/** r = a - b (mod m) */
+	public void sub(int[] a, int aOff, int[] b, int bOff, int[] r, int rOff) {
+		long c = 0;
+		for (int i = 0; i < n; i++) {
+			c += (a[aOff + i] & MASK) - (b[bOff + i] & MASK);
+			r[rOff + i] = (int) c;
+			c >>= 32;
+		}
+		if (c != 0) {
+			c = 0;
+			for (int i = 0; i < n; i++) {
+				c += (r[rOff + i] & MASK) + (m[i] & MASK);
+				r[rOff + i] = (int) c;
+				c >>>= 32;
+			}
+		}
+	}
+
+	private boolean less(int[] a, int off) {
+		for (int i = n - 1; i >= 0; i--) {
+			int c = Integer.compareUnsigned(a[off + i], m[i]);
+			if (c != 0)
+				return c < 0;
+		}
+		return false;
+	}
+
+	private void subtractModulus(int[] a, int off) {
+		long c = 0;
+		for (int i = 0; i < n; i++) {
+			c += (a[off + i] & MASK) - (m[i] & MASK);
+			a[off + i] = (int) c;
+			c >>= 32;
+		}
+	}
+
+	public void copy(int[] a, int aOff, int[] r, int rOff) {
+		System.arraycopy(a, aOff, r, rOff, n);
+	}
+
+	// ------------------------------------------------------------
+	// Montgomery domain
+
+	/** r = a * b * R<sup>-1</sup> (mod m). r may overlap a or b. */
+	public void mul(int[] a, int aOff, int[] b, int bOff, int[] r, int rOff, long[] t) {
+		for (int i = 0; i < n + 2; i++)
+			t[i] = 0;
+		for (int i = 0; i < n; i++) {
+			long ai = a[aOff + i] & MASK;
+			long c = 0;
+			for (int j = 0; j < n; j++) {
+				long s = t[j] + ai * (b[bOff + j] & MASK) + c;
+				t[j] = s & MASK;
+				c = s >>> 32;
+			}
+			long s = t[n] + c;
+			t[n] = s & MASK;
+			t[n + 1] = s >>> 32;
+
+			long q = (t[0] * m0inv) & MASK;
+			c = (t[0] + q * (m[0] & MASK)) >>> 32;
+			for (int j = 1; j < n; j++) {
+				s = t[j] + q * (m[j] & MASK) + c;
+				t[j - 1] = s & MASK;
+				c = s >>> 32;
+			}
+			s = t[n] + c;
+			t[n - 1] = s & MASK;
+			t[n] = t[n + 1] + (s >>> 32);
+		}
+		finish(t, 0, r, rOff);
+	}
+
+	/** r = a<sup>2</sup> * R<sup>-1</sup> (mod m). r may overlap a. */
+	public void sqr(int[] a, int aOff, int[] r, int rOff, long[] t) {
+		for (int i = 0; i < 2 * n + 2; i++)
+			t[i] = 0;
+
+		// cross products
+		for (int i = 0; i < n; i++) {
+			long ai = a[aOff + i] & MASK;
+			long c = 0;
+			for (int j = i + 1; j < n; j++) {
+				long s = t[i + j] + ai * (a[aOff + j] & MASK) + c;
+				t[i + j] = s & MASK;
+				c = s >>> 32;
+			}
+			t[i + n] = c;
+		}
+		// double them and add the squares
+		long c = 0;
+		for (int i = 0; i < n; i++) {
+			long ai = a[aOff + i] & MASK;
+			long sq = ai * ai;
+			long lo = (t[2 * i] << 1) + (sq & MASK) + c;
+			t[2 * i] = lo & MASK;
+			long hi = (t[2 * i + 1] << 1) + (sq >>> 32) + (lo >>> 32);
+			t[2 * i + 1] = hi & MASK;
+			c = hi >>> 32;
+		}
+		t[2 * n] = c;
+
+		redc(t);
+		finish(t, n, r, rOff);
+	}
+
+	// t[n : 2n + 1] = t * R^-1, where t has 2n + 2 limbs
+	private void redc(long[] t) {
+		int len = 2 * n + 2;
+		for (int i = 0; i < n; i++) {
+			long q = (t[i] * m0inv) & MASK;
+			long c = 0;
+			for (int j = 0; j < n; j++) {
+				long s = t[i + j] + q * (m[j] & MASK) + c;
+				t[i + j] = s & MASK;
+				c = s >>> 32;
+			}
+			for (int k = i + n; c != 0 && k < len; k++) {
+				long s = t[k] + c;
+				t[k] = s & MASK;
+				c = s >>> 32;
+			}
+		}
+	}
+
+	/**
+	 * acc += a * b without reduction. acc is 2n + 2 limbs of newAccumulator()
+	 * and may hold the sum of up to 2<sup>32</sup> products.
+	 */
+	public void mulAdd(int[] a, int aOff, int[] b, int bOff, long[] acc) {
+		for (int i = 0; i < n; i++) {
+			long ai = a[aOff + i] & MASK;
+			if (ai == 0)
+				continue;
+			long c = 0;
+			for (int j = 0; j < n; j++) {
+				long s = acc[i + j] + ai * (b[bOff + j] & MASK) + c;
+				acc[i + j] = s & MASK;
+				c = s >>> 32;
+			}
+			for (int k = i + n; c != 0; k++) {
+				long s = acc[k] + c;
+				acc[k] = s & MASK;
+				c = s >>> 32;
+			}
+		}
+	}
+
+	/**
+	 * r = acc * R<sup>-2</sup> (mod m) and clears acc. Sums of products with
+	 * operands in the form of toMontgomery2 come back in normal form.
+	 */
+	public void reduce(long[] acc, int[] r, int rOff) {
+		redc(acc);
+		// acc * R^-1 < (products + 1) * m, so the second pass ends below 2m
+		for (int i = 0; i < n + 2; i++)
+			acc[i] = acc[n + i];
+		for (int i = n + 2; i < 2 * n + 2; i++)
+			acc[i] = 0;
+		redc(acc);
+		finish(acc, n, r, rOff);
+		for (int i = 0; i < 2 * n + 2; i++)
+			acc[i] = 0;
+	}
+
+	// r = t[off : off + n] (mod m), where t < 2m
+	private void finish(long[] t, int off, int[] r, int rOff) {
+		boolean ge = t[off + n] != 0;
+		if (!ge) {
+			ge = true;
+			for (int i = n - 1; i >= 0; i--) {
+				long mi = m[i] & MASK;
+				if (t[off + i] != mi) {
+					ge = t[off + i] > mi;
+					break;
+				}
+			}
+		}
+		if (ge) {
+			long c = 0;
+			for (int i = 0; i < n; i++) {
+				c += t[off + i] - (m[i] & MASK);
+				r[rOff + i] = (int) c;
+				c >>= 32;
+			}
+		} else
+			for (int i = 0; i < n; i++)
+				r[rOff + i] = (int) t[off + i];
+	}
+
+	public void toMontgomery(int[] a, int aOff, int[] r, int rOff, long[] t) {
+		mul(a, aOff, r2, 0, r, rOff, t);
+	}
+
+	/** r = a * R<sup>2</sup> (mod m), the operand form of reduce(long[]). */
+	public void toMontgomery2(int[] a, int aOff, int[] r, int rOff, long[] t) {
+		mul(a, aOff, r3, 0, r, rOff, t);
+	}
+
+	public void fromMontgomery(int[] a, int aOff, int[] r, int rOff, long[] t) {
+		mul(a, aOff, unit, 0, r, rOff, t);
+	}
+
+	/** Sets the Montgomery form of 1 to r. */
+	public void one(int[] r, int rOff, long[] t) {
+		toMontgomery(unit, 0, r, rOff, t);
+	}
+
+	/** Returns the number of limbs needed by 'table' of pow. */
+	public int powTableSize(int maxExponentBits) {
+		return n << (window(maxExponentBits) - 1);
+	}
+
+	private static int window(int bits) {
+		if (bits <= 24)
+			return 1;
+		if (bits <= 80)
+			return 3;
+		if (bits <= 240)
+			return 4;
+		if (bits <= 672)
+			return 5;
+		return 6;
+	}
+
+	/**
+	 * r = base<sup>e</sup> in the Montgomery domain by sliding window, where
+	 * the exponent is 'eLen' limbs at e[eOff]. 'table' must have at least
+	 * powTableSize(eLen * 32) limbs. r must not overlap base.
+	 */
+	public void pow(int[] base, int bOff, int[] e, int eOff, int eLen, int[] r, int rOff, int[] table, long[] t) {
+		int bits = bitLength(e, eOff, eLen);
+		if (bits == 0) {
+			one(r, rOff, t);
+			return;
+		}
+		int w = window(bits);
+
+		// table = base, base^3, base^5, ...
+		copy(base, bOff, table, 0);
+		if (w > 1) {
+			sqr(base, bOff, r, rOff, t);
+			for (int i = 1; i < (1 << (w - 1)); i++)
+				mul(table, (i - 1) * n, r, rOff, table, i * n, t);
+		}
+
+		boolean first = true;
+		int i = bits - 1;
+		while (i >= 0) {
+			if (bit(e, eOff, i) == 0) {
+				sqr(r, rOff, r, rOff, t);
+				i--;
+				continue;
+			}
+			int l = Math.max(i - w + 1, 0);
+			while (bit(e, eOff, l) == 0)
+				l++;
+			int val = 0;
+			for (int k = i; k >= l; k--)
+				val = (val << 1) | bit(e, eOff, k);
+
+			if (first) {
+				copy(table, (val >>> 1) * n, r, rOff);
+				first = false;
+			} else {
+				for (int k = i; k >= l; k--)
+					sqr(r, rOff, r, rOff, t);
+				mul(r, rOff, table, (val >>> 1) * n, r, rOff, t);
+			}
+			i = l - 1;
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof LimbModulus))
+			return false;
+		return modulus.equals(((LimbModulus) obj).modulus);
+	}
+
+	@Override
+	public int hashCode() {
+		return modulus.hashCode();
+	}
+}
@@ -0,0 +1,134 @@
+package matrix;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * The Montgomery arithmetic of LimbModulus and the product of LimbMatrix
+ * against BigInteger, for odd moduli of 64-65, 127-128 and 4096 bits.<BR>
+ * With n limbs R = 2<sup>32n</sup>: mul is a * b * R<sup>-1</sup>, sqr is
+ * a<sup>2</sup> * R<sup>-1</sup>, and the sums of mulAdd are reduced by
+ * R<sup>-2</sup>.
+ */
+public class LimbModulusTest {
+	static final int[] BITS = { 64, 65, 127, 128, 4096 };
+
+	public static void main(String[] args) {
+		int suc = 0;
+		int num = 200;
+
+		Random random = new Random();
+		for (int i = 0; i < num; i++) {
+			boolean ok = true;
+			for (int bits : BITS) {
+				BigInteger m = modulus(random, bits);
+				ok &= mul(random, m) && mulAdd(random, m) && matrix(random, m);
+			}
+			if (ok)
+				suc++;
+		}
+		System.out.println(suc + "/" + num);
+	}
+
+	// an odd modulus of 'bits', sometimes 2^bits - 1 or 2^(bits-1) + 1
+	static BigInteger modulus(Random random, int bits) {
+		switch (random.nextInt(4)) {
+		case 0:
+			return BigInteger.ONE.shiftLeft(bits).subtract(BigInteger.ONE);
+		case 1:
+			return BigInteger.ONE.shiftLeft(bits - 1).add(BigInteger.ONE);
+		default:
+			return new BigInteger(bits, random).setBit(bits - 1).setBit(0);
+		}
+	}
+
+	// 0, 1, m - 1 or a random value below m
+	static BigInteger value(Random random, BigInteger m) {
+		switch (random.nextInt(6)) {
+		case 0:
+			return BigInteger.ZERO;
+		case 1:
+			return BigInteger.ONE;
+		case 2:
+			return m.subtract(BigInteger.ONE);
+		default:
+			return new BigInteger(m.bitLength() + 8, random).mod(m);
+		}
+	}
+
+	static boolean mul(Random random, BigInteger m) {
+		LimbModulus lm = new LimbModulus(m);
+		int n = lm.size();
+		BigInteger rInv = BigInteger.ONE.shiftLeft(32 * n).modInverse(m);
+		int[] a = new int[n], b = new int[n], r = new int[n];
+		long[] t = lm.newScratch();
+		for (int k = 0; k < 20; k++) {
+			BigInteger x = value(random, m), y = value(random, m);
+			lm.reduce(x, a, 0);
+			lm.reduce(y, b, 0);
+			lm.mul(a, 0, b, 0, r, 0, t);
+			if (!lm.toBigInteger(r, 0).equals(x.multiply(y).multiply(rInv).mod(m)))
+				return false;
+			lm.sqr(a, 0, r, 0, t);
+			if (!lm.toBigInteger(r, 0).equals(x.multiply(x).multiply(rInv).mod(m)))
+				return false;
+			// in place, r overlapping a
+			lm.mul(a, 0, b, 0, a, 0, t);
+			if (!lm.toBigInteger(a, 0).equals(x.multiply(y).multiply(rInv).mod(m)))
+				return false;
+		}
+		return true;
+	}
+
+	// sums of up to 1000 products, the carries of m - 1 squared included
+	static boolean mulAdd(Random random, BigInteger m) {
+		LimbModulus lm = new LimbModulus(m);
+		int n = lm.size();
+		BigInteger r2Inv = BigInteger.ONE.shiftLeft(64 * n).modInverse(m);
+		int terms = 1 + random.nextInt(random.nextBoolean() ? 1000 : 10);
+		boolean top = random.nextInt(4) == 0;
+		int[] a = new int[n], b = new int[n], r = new int[n];
+		long[] acc = lm.newAccumulator();
+		BigInteger sum = BigInteger.ZERO;
+		for (int k = 0; k < terms; k++) {
+			BigInteger x = top ? m.subtract(BigInteger.ONE) : value(random, m);
+			BigInteger y = top ? m.subtract(BigInteger.ONE) : value(random, m);
+			lm.reduce(x, a, 0);
+			lm.reduce(y, b, 0);
+			lm.mulAdd(a, 0, b, 0, acc);
+			sum = sum.add(x.multiply(y));
+		}
+		lm.reduce(acc, r, 0);
+		if (!lm.toBigInteger(r, 0).equals(sum.multiply(r2Inv).mod(m)))
+			return false;
+		// reduce clears the accumulator
+		for (long v : acc)
+			if (v != 0)
+				return false;
+		return true;
+	}
+
+	// LimbMatrix.multi against the product by BigInteger
+	static boolean matrix(Random random, BigInteger m) {
+		int r = 1 + random.nextInt(5), inner = 1 + random.nextInt(m.bitLength() > 1000 ? 4 : 20),
+				c = 1 + random.nextInt(5);
+		BigInteger[][] a = new BigInteger[r][inner], b = new BigInteger[inner][c];
+		for (int i = 0; i < r; i++)
+			for (int k = 0; k < inner; k++)
+				a[i][k] = value(random, m);
+		for (int k = 0; k < inner; k++)
+			for (int j = 0; j < c; j++)
+				b[k][j] = value(random, m);
+		BigInteger[][] res = new BigInteger[r][c];
+		LimbMatrix.multi(ModularMatrix.ofReduced(a, m), ModularMatrix.ofReduced(b, m), new LimbModulus(m), res);
+		for (int i = 0; i < r; i++)
+			for (int j = 0; j < c; j++) {
+				BigInteger s = BigInteger.ZERO;
+				for (int k = 0; k < inner; k++)
+					s = s.add(a[i][k].multiply(b[k][j]));
+				if (!res[i][j].equals(s.mod(m)))
+					return false;
+			}
+		return true;
+	}
+}
@@ -0,0 +1,745 @@
+package matrix;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import crypto.ssa5.interfaces.Serializable;
+import crypto.ssa5.spi.ByteArrayConverter;
+
+/**
+ * Modular matrix for a modulus lower than 2<sup>63</sup>.<BR>
+ * Elements are kept as primitive longs in a flat row-major array, so no
+ * operation allocates per element. The byte array format is the same as
+ * ModularMatrix.
+ */
+public class LongModularMatrix implements Matrix<LongModularMatrix, Long>, Serializable, Cloneable {
+	private static final long serialVersionUID = -4187425480113964873L;
+	// columns of a tile of multi
+	private static final int TILE = 64;
+	private final int rows;
+	private final int cols;
+	private final long[] data;
+	private final LongModulus modulus;
+	// transposed data, for the kernels reading by column
+	private transient volatile long[] columns;
+
+	// 'd' must be already reduced.
+	LongModularMatrix(int r, int c, long[] d, LongModulus mod) {
+		if (d.length != r * c)
+			throw new IllegalArgumentException("illegal array length " + d.length + " (" + r + " * " + c + ")");
+		rows = r;
+		cols = c;
+		data = d;
+		modulus = mod;
+	}
+
+	public LongModularMatrix(long[][] d, long mod) {
+		this(d.length, d[0].length, new long[d.length * d[0].length], new LongModulus(mod));
+		for (int i = 0; i < rows; i++) {
+			if (d[i].length != cols)
+				throw new IllegalArgumentException("illegal array length in " + i + "th row.");
+			for (int j = 0; j < cols; j++)
+				data[i * cols + j] = modulus.mod(d[i][j]);
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             the modulus of 'mat' is not lower than 2<sup>63</sup>
+	 */
+	public LongModularMatrix(ModularMatrix mat) {
+		this(mat.rows, mat.cols, new long[mat.rows * mat.cols], modulusOf(mat.getModulus()));
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				data[i * cols + j] = mat.data[i][j].longValue();
+	}
+
+	private static LongModulus modulusOf(BigInteger mod) {
+		if (!LongModulus.fits(mod))
+			throw new IllegalArgumentException("mod must be lower than 2^63.(" + mod + ")");
+		return new LongModulus(mod.longValue());
+	}
+
+	public ModularMatrix toModularMatrix() {
+		BigInteger[][] res = new BigInteger[rows][cols];
+		copyTo(res);
+		return ModularMatrix.ofReduced(res, BigInteger.valueOf(modulus.getModulus()));
+	}
+
+	// the entries into the rows 'res'
+	void copyTo(BigInteger[][] res) {
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				res[i][j] = BigInteger.valueOf(data[i * cols + j]);
+	}
+
+	// Serialize (same format as ModularMatrix)
+	@Override
+	public final byte[] toByteArray() {
+		int mL = elemLength();
+		byte[] res = new byte[byteArrayLength()];
+
+		ByteArrayConverter.saveByte(res, ModularMatrix.POS_DIM, rows);
+		ByteArrayConverter.saveShort(res, ModularMatrix.POS_MOD_BYTES, mL);
+		ByteArrayConverter.saveBLong(res, ModularMatrix.POS_MOD, modulus.getModulus(), mL);
+
+		int posElem = ModularMatrix.POS_MOD + mL;
+		for (int e = 0; e < rows * cols; e++)
+			ByteArrayConverter.saveBLong(res, posElem + (e * mL), data[e], mL);
+		return res;
+	}
+
+	@Override
+	public int byteArrayLength() {
+		int mL = elemLength();
+		return ModularMatrix.POS_MOD + mL + (mL * (rows * cols));
+	}
+
+	public final byte[] toKeyByteArray() {
+		int mL = elemLength();
+		byte[] res = new byte[mL * rows * cols];
+		for (int e = 0; e < rows * cols; e++)
+			ByteArrayConverter.saveBLong(res, e * mL, data[e], mL);
+		return res;
+	}
+
+	private int elemLength() {
+		return ByteArrayConverter.byteLength(Long.SIZE - Long.numberOfLeadingZeros(modulus.getModulus()));
+	}
+
+	// Deserialize
+	public LongModularMatrix(byte[] array, int pos) {
+		this(getD(array, pos), getD(array, pos), new long[getD(array, pos) * getD(array, pos)],
+				new LongModulus(getM(array, pos)));
+		int mL = getML(array, pos);
+		int posElem = pos + ModularMatrix.POS_MOD + mL;
+		for (int e = 0; e < rows * cols; e++)
+			data[e] = ByteArrayConverter.loadBLong(array, posElem + (e * mL), mL);
+	}
+
+	public LongModularMatrix(byte[] array) {
+		this(array, 0);
+	}
+
+	private static int getD(byte[] array, int pos) {
+		return ByteArrayConverter.loadByte(array, pos + ModularMatrix.POS_DIM);
+	}
+
+	private static int getML(byte[] array, int pos) {
+		int mL = ByteArrayConverter.loadShort(array, pos + ModularMatrix.POS_MOD_BYTES);
+		if (mL > Long.BYTES)
+			throw new IllegalArgumentException("mod must be lower than 2^63.(" + mL + " bytes)");
+		return mL;
+	}
+
+	private static long getM(byte[] array, int pos) {
+		return ByteArrayConverter.loadBLong(array, pos + ModularMatrix.POS_MOD, getML(array, pos));
+	}
+
+	public long getModulus() {
+		return modulus.getModulus();
+	}
+
+	@Override
+	public int getRowSize() {
+		return rows;
+	}
+
+	@Override
+	public int getColumnSize() {
+		return cols;
+	}
+
+	private void checkIndex(int i, int j) {
+		if (!(0 <= i && i < rows))
+			throw new ArrayIndexOutOfBoundsException("rows size:" + rows + "(" + i + ")");
+		if (!(0 <= j && j < cols))
+			throw new ArrayIndexOutOfBoundsException("column size:" + cols + "(" + j + ")");
+	}
+
+	private void checkSquare() {
+		if (!(rows == cols))
+			throw new ArrayIndexOutOfBoundsException("not square matrix(" + rows + ", " + cols + ")");
+	}
+
+	private void checkAdd(LongModularMatrix m) {
+		if (!(rows == m.rows && cols == m.cols))
+			throw new ArrayIndexOutOfBoundsException("L:(" + rows + ", " + cols + "), R:(" + m.rows + ", " + m.cols + ")");
+	}
+
+	private void checkMul(LongModularMatrix m) {
+		if (!(cols == m.rows))
+			throw new ArrayIndexOutOfBoundsException("L:(" + rows + "," + cols + "), R:(" + m.rows + "," + m.cols + ")");
+	}
+
+	private void checkMod(LongModularMatrix mat) {
+		if (!modulus.equals(mat.modulus))
+			throw new RuntimeException("modulus is different " + modulus + ", " + mat.modulus);
+	}
+
+	private LongModulus modulusFor(long mod) {
+		return mod == modulus.getModulus() ? modulus : new LongModulus(mod);
+	}
+
+	public long getLong(int r, int c) {
+		checkIndex(r, c);
+		return data[r * cols + c];
+	}
+
+	@Override
+	public Long get(int r, int c) {
+		return getLong(r, c);
+	}
+
+	@Override
+	public LongModularMatrix set(int r, int c, Long val) {
+		checkIndex(r, c);
+		long[] res = data.clone();
+		res[r * cols + c] = modulus.mod(val);
+		return new LongModularMatrix(rows, cols, res, modulus);
+	}
+
+	@Override
+	public Long[] getRow(int r) {
+		checkIndex(r, 0);
+		Long[] res = new Long[cols];
+		for (int j = 0; j < cols; j++)
+			res[j] = data[r * cols + j];
+		return res;
+	}
+
+	@Override
+	public Long[] getColumn(int c) {
+		checkIndex(0, c);
+		Long[] res = new Long[rows];
+		for (int i = 0; i < rows; i++)
+			res[i] = data[i * cols + c];
+		return res;
+	}
+
+	@Override
+	public LongModularMatrix zero(int rows, int columns) {
+		if (rows <= 0)
+			throw new IllegalArgumentException("\'rows\' must be positive.(" + rows + ")");
+		if (columns <= 0)
+			throw new IllegalArgumentException("\'columns\' must be positive.(" + columns + ")");
+		return new LongModularMatrix(rows, columns, new long[rows * columns], modulus);
+	}
+
+	@Override
+	public LongModularMatrix diag(Long val, int dim) {
+		if (dim <= 0)
+			throw new IllegalArgumentException("\'dim\' must be positive.(" + dim + ")");
+		long v = modulus.mod(val);
+		long[] res = new long[dim * dim];
+		for (int i = 0; i < dim; i++)
+			res[i * dim + i] = v;
+		return new LongModularMatrix(dim, dim, res, modulus);
+	}
+
+	@Override
+	public LongModularMatrix idm(int dim) {
+		return diag(1L, dim);
+	}
+
+	@Override
+	public LongModularMatrix exchangeRow(int i, int j) {
+		checkIndex(i, 0);
+		checkIndex(j, 0);
+		long[] res = data.clone();
+		System.arraycopy(data, j * cols, res, i * cols, cols);
+		System.arraycopy(data, i * cols, res, j * cols, cols);
+		return new LongModularMatrix(rows, cols, res, modulus);
+	}
+
+	@Override
+	public LongModularMatrix exchangeCol(int i, int j) {
+		checkIndex(0, i);
+		checkIndex(0, j);
+		long[] res = data.clone();
+		for (int k = 0; k < rows; k++) {
+			res[k * cols + i] = data[k * cols + j];
+			res[k * cols + j] = data[k * cols + i];
+		}
+		return new LongModularMatrix(rows, cols, res, modulus);
+	}
+
+	@Override
+	public LongModularMatrix transpose() {
+		long[] res = new long[rows * cols];
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				res[j * rows + i] = data[i * cols + j];
+		return new LongModularMatrix(cols, rows, res, modulus);
+	}
+
+	@Override
+	public LongModularMatrix subMatrix(int r, int c) {
+		checkIndex(r, c);
+		long[] res = new long[(rows - 1) * (cols - 1)];
+		int pos = 0;
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				if (i != r && j != c)
+					res[pos++] = data[i * cols + j];
+		return new LongModularMatrix(rows - 1, cols - 1, res, modulus);
+	}
+
+	@Override
+	public Long cofactor(int r, int c) {
+		long det = subMatrix(r, c).det();
+		return (((r + c) & 1) == 0) ? det : modulus.neg(det);
+	}
+
+	/**
+	 * Returns the determinant (mod m) by Gaussian elimination.
+	 */
+	@Override
+	public Long det() {
+		checkSquare();
+		long[] a = data.clone();
+		int n = rows;
+		long det = 1;
+		for (int c = 0; c < n; c++) {
+			int p = findUnitPivot(a, n, c);
+			if (p < 0) {
+				if (isZeroColumn(a, n, c))
+					return 0L;
+				// no unit in the column over a composite modulus
+				return modulus.mod(toModularMatrix().lu().det());
+			}
+			if (p != c) {
+				swapRows(a, n, p, c);
+				det = modulus.neg(det);
+			}
+			long piv = a[c * n + c];
+			det = modulus.mul(det, piv);
+			long inv = modulus.inverse(piv);
+			for (int i = c + 1; i < n; i++) {
+				long f = modulus.mul(a[i * n + c], inv);
+				if (f != 0)
+					for (int j = c; j < n; j++)
+						a[i * n + j] = modulus.sub(a[i * n + j], modulus.mul(f, a[c * n + j]));
+			}
+		}
+		return det;
+	}
+
+	/**
+	 * Returns the inverse matrix by Gauss-Jordan elimination.
+	 *
+	 * @throws NotInvertibleException
+	 *             this matrix is not invertible
+	 */
+	@Override
+	public LongModularMatrix inverse() throws NotInvertibleException {
+		checkSquare();
+		int n = rows;
+		long[] a = data.clone();
+		long[] res = new long[n * n];
+		for (int i = 0; i < n; i++)
+			res[i * n + i] = 1;
+
+		for (int c = 0; c < n; c++) {
+			int p = findUnitPivot(a, n, c);
+			if (p < 0) {
+				if (isZeroColumn(a, n, c))
+					throw new NotInvertibleException(this);
+				// no unit in the column over a composite modulus
+				return new LongModularMatrix(toModularMatrix().lu().inverse());
+			}
+			if (p != c) {
+				swapRows(a, n, p, c);
+				swapRows(res, n, p, c);
+			}
+			long inv = modulus.inverse(a[c * n + c]);
+			for (int j = 0; j < n; j++) {
+				a[c * n + j] = modulus.mul(a[c * n + j], inv);
+				res[c * n + j] = modulus.mul(res[c * n + j], inv);
+			}
+			for (int i = 0; i < n; i++) {
+				long f = a[i * n + c];
+				if (i == c || f == 0)
+					continue;
+				for (int j = 0; j < n; j++) {
+					a[i * n + j] = modulus.sub(a[i * n + j], modulus.mul(f, a[c * n + j]));
+					res[i * n + j] = modulus.sub(res[i * n + j], modulus.mul(f, res[c * n + j]));
+				}
+			}
+		}
+		return new LongModularMatrix(n, n, res, modulus);
+	}
+
+	private int findUnitPivot(long[] a, int n, int c) {
+		for (int i = c; i < n; i++) {
+			long v = a[i * n + c];
+			if (v != 0 && modulus.gcd(v) == 1)
+				return i;
+		}
+		return -1;
+	}
+
+	private static boolean isZeroColumn(long[] a, int n, int c) {
+		for (int i = c; i < n; i++)
+			if (a[i * n + c] != 0)
+				return false;
+		return true;
+	}
+
+	private static void swapRows(long[] a, int n, int i, int j) {
+		for (int k = 0; k < n; k++) {
+			long t = a[i * n + k];
+			a[i * n + k] = a[j * n + k];
+			a[j * n + k] = t;
+		}
+	}
+
+	@Override
+	public LongModularMatrix scalar(Long scalar) {
+		long s = modulus.mod(scalar);
+		long[] res = new long[rows * cols];
+		for (int e = 0; e < res.length; e++)
+			res[e] = modulus.mul(data[e], s);
+		return new LongModularMatrix(rows, cols, res, modulus);
+	}
+
+	@Override
+	public LongModularMatrix add(LongModularMatrix mat) {
+		checkMod(mat);
+		checkAdd(mat);
+		long[] res = new long[rows * cols];
+		for (int e = 0; e < res.length; e++)
+			res[e] = modulus.add(data[e], mat.data[e]);
+		return new LongModularMatrix(rows, cols, res, modulus);
+	}
+
+	@Override
+	public LongModularMatrix sub(LongModularMatrix mat) {
+		checkMod(mat);
+		checkAdd(mat);
+		long[] res = new long[rows * cols];
+		for (int e = 0; e < res.length; e++)
+			res[e] = modulus.sub(data[e], mat.data[e]);
+		return new LongModularMatrix(rows, cols, res, modulus);
+	}
+
+	/**
+	 * Returns this * mat (mod 'mod'). The moduli of both operands may differ
+	 * from 'mod'.<BR>
+	 * Large products are split by Strassen-Winograd down to the classical
+	 * kernel.
+	 */
+	public LongModularMatrix multi(LongModularMatrix mat, long mod) {
+		checkMul(mat);
+		LongModulus out = modulusFor(mod);
+		long[] a = reducedData(out);
+		long[] res;
+		if (Strassen.pays(rows, cols, mat.cols, Strassen.LONG_CUTOFF))
+			res = Strassen.multi(a, mat.reducedData(out), rows, cols, mat.cols, out);
+		else
+			res = classical(a, mat.reducedColumns(out), rows, cols, mat.cols, out);
+		return new LongModularMatrix(rows, mat.cols, res, out);
+	}
+
+	/**
+	 * Returns a * b (mod 'out') of a : rows × inner and b : inner × cols, for
+	 * the transpose bt of b. The entries must be reduced.<BR>
+	 * Every entry is a dot product of a row of a and a row of bt, both
+	 * contiguous. The products are summed as 128 bit values and reduced once.
+	 * A block of rows runs over TILE columns at a time, whose rows of bt stay
+	 * in the cache.
+	 */
+	static long[] classical(long[] a, long[] bt, int rows, int inner, int cols, LongModulus out) {
+		long m = out.getModulus();
+		long[] res = new long[rows * cols];
+		MatrixPool.forRange(rows, (long) inner * cols, (from, to) -> {
+			for (int jj = 0; jj < cols; jj += TILE) {
+				int jEnd = Math.min(jj + TILE, cols);
+				for (int i = from; i < to; i++)
+					for (int j = jj; j < jEnd; j++) {
+						// hi * 2^64 + lo, hi < m as m * 2^64 = 0 (mod m)
+						long hi = 0;
+						long lo = 0;
+						for (int k = 0, x = i * inner, y = j * inner; k < inner; k++, x++, y++) {
+							long s = lo + a[x] * bt[y];
+							hi += Math.multiplyHigh(a[x], bt[y]) + (Long.compareUnsigned(s, lo) < 0 ? 1 : 0);
+							lo = s;
+							if (Long.compareUnsigned(hi, m) >= 0)
+								hi -= m;
+						}
+						res[i * cols + j] = out.reduce(hi, lo);
+					}
+			}
+		});
+		return res;
+	}
+
+	private long[] reducedData(LongModulus out) {
+		if (out.getModulus() >= modulus.getModulus())
+			return data;
+		long[] res = new long[data.length];
+		for (int e = 0; e < res.length; e++)
+			res[e] = out.mod(data[e]);
+		return res;
+	}
+
+	// transposed data reduced by 'out'
+	private long[] reducedColumns(LongModulus out) {
+		if (out.getModulus() >= modulus.getModulus())
+			return columns();
+		long[] c = columns();
+		long[] res = new long[c.length];
+		for (int e = 0; e < res.length; e++)
+			res[e] = out.mod(c[e]);
+		return res;
+	}
+
+	/** Returns the transposed data, computed once. */
+	long[] columns() {
+		long[] c = columns;
+		if (c == null) {
+			c = new long[data.length];
+			for (int i = 0; i < rows; i++)
+				for (int j = 0; j < cols; j++)
+					c[j * rows + i] = data[i * cols + j];
+			columns = c;
+		}
+		return c;
+	}
+
+	@Override
+	public LongModularMatrix multi(LongModularMatrix mat) {
+		checkMod(mat);
+		return multi(mat, modulus.getModulus());
+	}
+
+	@Override
+	public LongModularMatrix pow(int exponent) throws NotInvertibleException {
+		checkSquare();
+
+		if (exponent == 0)
+			return idm(rows);
+
+		LongModularMatrix base = this;
+		if (exponent < 0) {
+			base = base.inverse();
+			exponent = -exponent;
+		}
+
+		LongModularMatrix res = base;
+		for (int i = 30 - Integer.numberOfLeadingZeros(exponent); i >= 0; i--) {
+			res = res.multi(res);
+			if (((exponent >>> i) & 1) == 1)
+				res = res.multi(base);
+		}
+		return res;
+	}
+
+	@Override
+	public LongModularMatrix schurExp(Long base) {
+		return schurExp(base, modulus.getModulus());
+	}
+
+	/**
+	 * Returns a matrix M : M[i][j] = base<sup>this[i][j]</sup> (mod 'mod').
+	 * 0<sup>0</sup>=0
+	 */
+	public LongModularMatrix schurExp(long base, long mod) {
+		LongModulus out = modulusFor(mod);
+		long[] res = new long[rows * cols];
+		if (base != 0) {
+			long b = out.mod(base);
+			BigInteger m = BigInteger.valueOf(mod);
+			int bits = Long.SIZE - Long.numberOfLeadingZeros(modulus.getModulus() - 1);
+			if (FixedBaseTable.pays(m, bits, res.length)) {
+				FixedBaseTable table = new FixedBaseTable(BigInteger.valueOf(base), m, bits, res.length);
+				MatrixPool.forRange(res.length, bits, (from, to) -> {
+					for (int e = from; e < to; e++)
+						res[e] = table.pow(data[e]);
+				});
+			} else
+				MatrixPool.forRange(res.length, Long.SIZE, (from, to) -> {
+					for (int e = from; e < to; e++)
+						res[e] = out.pow(b, data[e]);
+				});
+		}
+		return new LongModularMatrix(rows, cols, res, out);
+	}
+
+	@Override
+	public LongModularMatrix schurExp(LongModularMatrix mat) {
+		return schurExp(mat, modulus.getModulus());
+	}
+
+	/**
+	 * Returns a matrix M : M[i][j] = this[i][j]<sup>mat[i][j]</sup> (mod
+	 * 'mod'). 0<sup>0</sup>=0
+	 */
+	public LongModularMatrix schurExp(LongModularMatrix mat, long mod) {
+		checkAdd(mat);
+		LongModulus out = modulusFor(mod);
+		long[] res = new long[rows * cols];
+		MatrixPool.forRange(res.length, Long.SIZE, (from, to) -> {
+			for (int e = from; e < to; e++)
+				res[e] = schurExp(out, data[e], mat.data[e]);
+		});
+		return new LongModularMatrix(rows, cols, res, out);
+	}
+
+	private static long schurExp(LongModulus out, long base, long exponent) {
+		if (base == 0)
+			return 0;
+		else
+			return out.pow(out.mod(base), exponent);
+	}
+
+	/**
+	 * return a modular matrix M : M[i][j] =
+	 * Π<sub>k</sub>(this[i][k]<sup>mat[k][j]</sup>)
+	 */
+	public LongModularMatrix exponent(LongModularMatrix m, long mod) {
+		checkMul(m);
+		LongModulus out = modulusFor(mod);
+		if (out.isOdd()) {
+			ModularMatrix[] b = { toModularMatrix() };
+			ModularMatrix[] x = { m.toModularMatrix() };
+			return MultiExp.exponent(b, x, out, false);
+		}
+		long[] res = new long[rows * m.cols];
+		MatrixPool.forRange(rows, (long) cols * m.cols * Long.SIZE, (from, to) -> {
+			for (int i = from; i < to; i++)
+				for (int j = 0; j < m.cols; j++) {
+					long v = 1;
+					for (int k = 0; k < cols && v != 0; k++)
+						v = out.mul(v, schurExp(out, data[i * cols + k], m.data[k * m.cols + j]));
+					res[i * m.cols + j] = v;
+				}
+		});
+		return new LongModularMatrix(rows, m.cols, res, out);
+	}
+
+	/**
+	 * return a modular matrix M : M[i][j] =
+	 * Π<sub>k</sub>(this[k][j]<sup>m[i][k]</sup>)
+	 */
+	public LongModularMatrix exponentReversely(LongModularMatrix m, long mod) {
+		checkMul(m);
+		LongModulus out = modulusFor(mod);
+		if (out.isOdd()) {
+			ModularMatrix[] b = { toModularMatrix() };
+			ModularMatrix[] x = { m.toModularMatrix() };
+			return MultiExp.exponent(b, x, out, true);
+		}
+		long[] res = new long[rows * m.cols];
+		MatrixPool.forRange(rows, (long) cols * m.cols * Long.SIZE, (from, to) -> {
+			for (int i = from; i < to; i++)
+				for (int j = 0; j < m.cols; j++) {
+					long v = 1;
+					for (int k = 0; k < cols && v != 0; k++)
+						v = out.mul(v, schurExp(out, data[k * cols + j], m.data[i * m.cols + k]));
+					res[i * m.cols + j] = v;
+				}
+		});
+		return new LongModularMatrix(rows, m.cols, res, out);
+	}
+
+	/**
+	 * return a modular matrix M : M[i][j] =
+	 * Π<sub>t</sub>Π<sub>k</sub>(bases[t][k][j]<sup>exps[t][i][k]</sup>)
+	 */
+	public static LongModularMatrix exponentReversely(LongModularMatrix[] bases, LongModularMatrix[] exps, long mod) {
+		if (bases.length != exps.length)
+			throw new IllegalArgumentException("number of bases and exponents are different.");
+		int rows = exps[0].rows;
+		int cols = bases[0].cols;
+		LongModulus out = new LongModulus(mod);
+		if (out.isOdd()) {
+			ModularMatrix[] b = new ModularMatrix[bases.length];
+			ModularMatrix[] x = new ModularMatrix[exps.length];
+			for (int t = 0; t < bases.length; t++) {
+				b[t] = bases[t].toModularMatrix();
+				x[t] = exps[t].toModularMatrix();
+			}
+			return MultiExp.exponent(b, x, out, true);
+		}
+		long[] res = new long[rows * cols];
+		long cost = 0;
+		for (int t = 0; t < bases.length; t++) {
+			exps[t].checkMul(bases[t]);
+			cost += (long) exps[t].cols * cols * Long.SIZE;
+		}
+		MatrixPool.forRange(rows, cost, (from, to) -> {
+			for (int i = from; i < to; i++)
+				for (int j = 0; j < cols; j++) {
+					long v = 1;
+					for (int t = 0; t < bases.length && v != 0; t++) {
+						LongModularMatrix b = bases[t];
+						LongModularMatrix x = exps[t];
+						for (int k = 0; k < x.cols && v != 0; k++)
+							v = out.mul(v, schurExp(out, b.data[k * b.cols + j], x.data[i * x.cols + k]));
+					}
+					res[i * cols + j] = v;
+				}
+		});
+		return new LongModularMatrix(rows, cols, res, out);
+	}
+
+	public LongModularMatrix changeMod(long mod) {
+		LongModulus out = new LongModulus(mod);
+		long[] res = new long[rows * cols];
+		for (int e = 0; e < res.length; e++)
+			res[e] = out.mod(data[e]);
+		return new LongModularMatrix(rows, cols, res, out);
+	}
+
+	@Override
+	public LongModularMatrix clone() {
+		return new LongModularMatrix(rows, cols, data.clone(), modulus);
+	}
+
+	public final void print() {
+		System.out.println(toString());
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (!(obj instanceof LongModularMatrix))
+			return false;
+		LongModularMatrix other = (LongModularMatrix) obj;
+		if (rows != other.rows)
+			return false;
+		if (cols != other.cols)
+			return false;
+		if (!modulus.equals(other.modulus))
+			return false;
+		if (!Arrays.equals(data, other.data))
+			return false;
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Arrays.hashCode(data) + modulus.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder res = new StringBuilder("\r\n");
+		for (int i = 0; i < rows; i++) {
+			res.append(i == 0 ? "[" : " ");
+			for (int j = 0; j < cols; j++) {
+				res.append(data[i * cols + j]);
+				if (j < cols - 1)
+					res.append(", ");
+				else if (i == rows - 1)
+					res.append("]");
+			}
+			res.append("\r\n");
+		}
+		return res.toString();
+	}
+}
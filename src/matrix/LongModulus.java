@@ -0,0 +1,227 @@
+package matrix;
+
+import java.math.BigInteger;
+
+/**
+ * Arithmetic modulo a positive modulus lower than 2<sup>63</sup>.<BR>
+ * Products are reduced with a precomputed reciprocal of the normalized
+ * modulus (Moller-Granlund), and exponentiation of an odd modulus runs in
+ * the Montgomery domain with R = 2<sup>64</sup>. No operation allocates.
+ */
+public final class LongModulus implements java.io.Serializable {
+	private static final long serialVersionUID = -2301859423465170513L;
+	private static final BigInteger TWO_64 = BigInteger.ONE.shiftLeft(64);
+
+	private final long m;
+
+	// normalized modulus and it's reciprocal
+	private final int shift;
+	private final long norm;
+	private final long reciprocal;
+
+	// Montgomery constants (odd modulus only)
+	private final long mInv;
+	private final long r2;
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             modulus < 2
+	 */
+	public LongModulus(long modulus) {
+		if (modulus < 2)
+			throw new IllegalArgumentException("mod must be greater or equals to 2.");
+		m = modulus;
+		shift = Long.numberOfLeadingZeros(modulus);
+		norm = modulus << shift;
+
+		BigInteger n = new BigInteger(Long.toUnsignedString(norm));
+		reciprocal = TWO_64.shiftLeft(64).subtract(BigInteger.ONE).divide(n).subtract(TWO_64).longValue();
+
+		if ((modulus & 1) == 1) {
+			long inv = modulus;
+			for (int i = 0; i < 5; i++)
+				inv *= 2 - modulus * inv;
+			mInv = inv;
+			r2 = TWO_64.pow(2).mod(BigInteger.valueOf(modulus)).longValue();
+		} else {
+			mInv = 0;
+			r2 = 0;
+		}
+	}
+
+	/** Returns true if the modulus can be handled by this class. */
+	public static boolean fits(BigInteger modulus) {
+		return modulus.signum() > 0 && modulus.bitLength() < Long.SIZE;
+	}
+
+	public long getModulus() {
+		return m;
+	}
+
+	public boolean isOdd() {
+		return (m & 1) == 1;
+	}
+
+	/** Returns val (mod m) for any val. */
+	public long mod(long val) {
+		long r = val % m;
+		return r < 0 ? r + m : r;
+	}
+
+	/** Returns val (mod m) */
+	public long mod(BigInteger val) {
+		if (val.signum() >= 0 && val.bitLength() < Long.SIZE)
+			return mod(val.longValue());
+		return val.mod(BigInteger.valueOf(m)).longValue();
+	}
+
+	public long add(long a, long b) {
+		long s = a + b;
+		return (s < 0 || s >= m) ? s - m : s;
+	}
+
+	public long sub(long a, long b) {
+		long s = a - b;
+		return s < 0 ? s + m : s;
+	}
+
+	public long neg(long a) {
+		return a == 0 ? 0 : m - a;
+	}
+
+	/** Returns a * b (mod m) for 0 <= a, b < m. */
+	public long mul(long a, long b) {
+		return reduce(Math.multiplyHigh(a, b), a * b);
+	}
+
+	/**
+	 * Returns (hi * 2<sup>64</sup> + lo) (mod m) for an unsigned 128 bit value
+	 * whose high word is lower than m.
+	 */
+	public long reduce(long hi, long lo) {
+		long u1 = (hi << shift) | (lo >>> (Long.SIZE - shift));
+		long u0 = lo << shift;
+
+		long q0 = reciprocal * u1;
+		long q1 = unsignedMultiplyHigh(reciprocal, u1);
+		long s = q0 + u0;
+		q1 += u1 + (Long.compareUnsigned(s, q0) < 0 ? 1 : 0) + 1;
+		q0 = s;
+
+		long r = u0 - q1 * norm;
+		if (Long.compareUnsigned(r, q0) > 0)
+			r += norm;
+		if (Long.compareUnsigned(r, norm) >= 0)
+			r -= norm;
+		return r >>> shift;
+	}
+
+	static long unsignedMultiplyHigh(long a, long b) {
+		return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+	}
+
+	/**
+	 * Returns base <sup>exponent</sup> (mod m) for 0 <= base < m and exponent
+	 * >= 0. 0<sup>0</sup>=1 as BigInteger.modPow.
+	 */
+	public long pow(long base, long exponent) {
+		if (exponent == 0)
+			return 1;
+		if (isOdd())
+			return fromMontgomery(montgomeryPow(toMontgomery(base), exponent));
+
+		long res = base;
+		for (int i = 62 - Long.numberOfLeadingZeros(exponent); i >= 0; i--) {
+			res = mul(res, res);
+			if (((exponent >>> i) & 1) == 1)
+				res = mul(res, base);
+		}
+		return res;
+	}
+
+	/** Returns a<sup>-1</sup> (mod m) */
+	public long inverse(long a) {
+		long r0 = m, r1 = a;
+		long t0 = 0, t1 = 1;
+		while (r1 != 0) {
+			long q = r0 / r1;
+			long r = r0 - q * r1;
+			r0 = r1;
+			r1 = r;
+			long t = t0 - q * t1;
+			t0 = t1;
+			t1 = t;
+		}
+		if (r0 != 1)
+			throw new ArithmeticException(a + " is not invertible (mod " + m + ").");
+		return t0 < 0 ? t0 + m : t0;
+	}
+
+	/** Returns gcd(a, m) */
+	public long gcd(long a) {
+		long x = m, y = a;
+		while (y != 0) {
+			long t = x % y;
+			x = y;
+			y = t;
+		}
+		return x;
+	}
+
+	// ------------------------------------------------------------
+	// Montgomery domain (odd modulus only)
+
+	/** Returns a * b * R<sup>-1</sup> (mod m) */
+	public long montgomeryMul(long a, long b) {
+		long hi = Math.multiplyHigh(a, b);
+		long q = a * b * mInv;
+		long r = hi - (Math.multiplyHigh(q, m) + ((q >> 63) & m));
+		return r < 0 ? r + m : r;
+	}
+
+	public long toMontgomery(long a) {
+		return montgomeryMul(a, r2);
+	}
+
+	public long fromMontgomery(long a) {
+		return montgomeryMul(a, 1);
+	}
+
+	/** Returns the Montgomery form of 1. */
+	public long montgomeryOne() {
+		return toMontgomery(1);
+	}
+
+	/**
+	 * Returns base <sup>exponent</sup> in the Montgomery domain. exponent must be
+	 * positive.
+	 */
+	public long montgomeryPow(long base, long exponent) {
+		long res = base;
+		for (int i = 62 - Long.numberOfLeadingZeros(exponent); i >= 0; i--) {
+			res = montgomeryMul(res, res);
+			if (((exponent >>> i) & 1) == 1)
+				res = montgomeryMul(res, base);
+		}
+		return res;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof LongModulus))
+			return false;
+		return m == ((LongModulus) obj).m;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(m);
+	}
+
+	@Override
+	public String toString() {
+		return Long.toString(m);
+	}
+}
@@ -0,0 +1,138 @@
+package matrix;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * LongModulus and LongModularMatrix against BigInteger at the edges of the
+ * 64 bit reduction: the smallest moduli, even moduli, and moduli close to
+ * 2<sup>63</sup> whose products are close to m * 2<sup>64</sup>.
+ */
+public class LongModulusTest {
+	static final long[] MODULI = { 2, 3, (1L << 31) - 1, 1L << 62, Long.MAX_VALUE };
+
+	public static void main(String[] args) {
+		int suc = 0;
+		int num = 1000;
+
+		Random random = new Random();
+		for (int i = 0; i < num; i++) {
+			boolean ok = true;
+			for (long m : MODULI)
+				ok &= mul(random, m) && reduce(random, m) && pow(random, m) && inverse(random, m);
+			ok &= matrix(random, MODULI[random.nextInt(MODULI.length)]);
+			if (ok)
+				suc++;
+		}
+		System.out.println(suc + "/" + num);
+	}
+
+	// 0, 1, m - 1 and the like, or a random value below m
+	static long value(Random random, long m) {
+		switch (random.nextInt(4)) {
+		case 0:
+			long[] edge = { 0, 1, m / 2, m - 2, m - 1 };
+			return Math.max(0, edge[random.nextInt(edge.length)]);
+		default:
+			return (random.nextLong() & Long.MAX_VALUE) % m;
+		}
+	}
+
+	static boolean mul(Random random, long m) {
+		LongModulus lm = new LongModulus(m);
+		BigInteger bm = BigInteger.valueOf(m);
+		for (int k = 0; k < 100; k++) {
+			long a = value(random, m), b = value(random, m);
+			long expected = BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)).mod(bm).longValue();
+			if (lm.mul(a, b) != expected)
+				return false;
+		}
+		// the largest product, (m - 1)^2
+		return lm.mul(m - 1, m - 1) == BigInteger.valueOf(m - 1).pow(2).mod(bm).longValue();
+	}
+
+	// hi * 2^64 + lo for hi < m, up to (m - 1) * 2^64 + 2^64 - 1
+	static boolean reduce(Random random, long m) {
+		LongModulus lm = new LongModulus(m);
+		BigInteger bm = BigInteger.valueOf(m);
+		for (int k = 0; k < 100; k++) {
+			long hi = k == 0 ? m - 1 : value(random, m);
+			long lo = k == 0 ? -1 : random.nextLong();
+			BigInteger v = BigInteger.valueOf(hi).shiftLeft(64).add(new BigInteger(Long.toUnsignedString(lo)));
+			if (lm.reduce(hi, lo) != v.mod(bm).longValue())
+				return false;
+		}
+		return true;
+	}
+
+	static boolean pow(Random random, long m) {
+		LongModulus lm = new LongModulus(m);
+		BigInteger bm = BigInteger.valueOf(m);
+		for (int k = 0; k < 30; k++) {
+			long a = value(random, m);
+			long e = k == 0 ? 0 : k == 1 ? Long.MAX_VALUE : random.nextLong() & Long.MAX_VALUE;
+			if (lm.pow(a, e) != BigInteger.valueOf(a).modPow(BigInteger.valueOf(e), bm).longValue())
+				return false;
+		}
+		return true;
+	}
+
+	static boolean inverse(Random random, long m) {
+		LongModulus lm = new LongModulus(m);
+		BigInteger bm = BigInteger.valueOf(m);
+		for (int k = 0; k < 30; k++) {
+			long a = value(random, m);
+			BigInteger ba = BigInteger.valueOf(a);
+			if (ba.gcd(bm).equals(BigInteger.ONE)) {
+				if (lm.inverse(a) != ba.modInverse(bm).longValue())
+					return false;
+			} else {
+				try {
+					lm.inverse(a);
+					return false;
+				} catch (ArithmeticException e) {
+					// not invertible
+				}
+			}
+		}
+		return true;
+	}
+
+	// multi against the product by BigInteger, inverse by A * A^-1 = I
+	static boolean matrix(Random random, long m) {
+		int n = 1 + random.nextInt(random.nextInt(8) == 0 ? 80 : 10);
+		long[][] a = new long[n][n], b = new long[n][n];
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++) {
+				a[i][j] = value(random, m);
+				b[i][j] = value(random, m);
+			}
+		LongModularMatrix la = new LongModularMatrix(a, m), lb = new LongModularMatrix(b, m);
+		LongModularMatrix prod = la.multi(lb);
+		BigInteger bm = BigInteger.valueOf(m);
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++) {
+				BigInteger s = BigInteger.ZERO;
+				for (int k = 0; k < n; k++)
+					s = s.add(BigInteger.valueOf(a[i][k]).multiply(BigInteger.valueOf(b[k][j])));
+				if (prod.getLong(i, j) != s.mod(bm).longValue())
+					return false;
+			}
+
+		LongModularMatrix inv;
+		try {
+			inv = la.inverse();
+		} catch (NotInvertibleException e) {
+			return !new ModularMatrix(toBig(a), bm).det().gcd(bm).equals(BigInteger.ONE);
+		}
+		return la.multi(inv).equals(la.idm(n));
+	}
+
+	static BigInteger[][] toBig(long[][] a) {
+		BigInteger[][] res = new BigInteger[a.length][a[0].length];
+		for (int i = 0; i < a.length; i++)
+			for (int j = 0; j < a[0].length; j++)
+				res[i][j] = BigInteger.valueOf(a[i][j]);
+		return res;
+	}
+}
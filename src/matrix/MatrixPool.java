@@ -0,0 +1,110 @@
+package matrix;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The ForkJoinPool the matrix kernels run on.<BR>
+ * A kernel splits its rows (products) or elements (element wise
+ * exponentiation) into blocks and runs them in parallel only when the
+ * estimated work, counted in 64 bit word multiplications, exceeds the
+ * threshold, so that small matrices stay serial.
+ */
+public final class MatrixPool {
+	/**
+	 * Work below which a kernel stays serial, about 50 microseconds. It is
+	 * also the smallest block handed to a worker.
+	 */
+	public static final long DEFAULT_THRESHOLD = 1L << 16;
+
+	private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+	private static volatile long threshold = DEFAULT_THRESHOLD;
+
+	private MatrixPool() {
+	}
+
+	public static ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * Sets the pool for the matrix kernels. null means the common pool.
+	 */
+	public static void setPool(ForkJoinPool p) {
+		pool = (p == null) ? ForkJoinPool.commonPool() : p;
+	}
+
+	public static long getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Sets the work below which a kernel stays serial. Long.MAX_VALUE keeps
+	 * every kernel serial.
+	 *
+	 * @throws IllegalArgumentException
+	 *             t < 1
+	 */
+	public static void setThreshold(long t) {
+		if (t < 1)
+			throw new IllegalArgumentException("threshold must be positive.(" + t + ")");
+		threshold = t;
+	}
+
+	/** Estimated work of a product of two numbers of 'bits'. */
+	static long mulCost(int bits) {
+		long w = (bits + 63) / 64;
+		return w * w;
+	}
+
+	/** Estimated work of a modular exponentiation. */
+	static long powCost(int exponentBits, int modBits) {
+		return Math.max(1, exponentBits) * mulCost(modBits);
+	}
+
+	/** A block [from, to) of rows or elements. */
+	public interface Range {
+		void run(int from, int to);
+	}
+
+	/**
+	 * Runs 'body' over [0, n), in parallel if n * unitCost is large enough.
+	 * unitCost is the work of one index in 64 bit word multiplications.
+	 */
+	public static void forRange(int n, long unitCost, Range body) {
+		ForkJoinPool p = pool;
+		long t = threshold;
+		unitCost = Math.max(1, unitCost);
+		if (n < 2 || p.getParallelism() < 2 || n * unitCost < 2 * t) {
+			body.run(0, n);
+			return;
+		}
+		int grain = (int) Math.max(1, Math.min(n, t / unitCost));
+		p.invoke(new Block(body, 0, n, grain));
+	}
+
+	@SuppressWarnings("serial")
+	private static final class Block extends RecursiveAction {
+		private final Range body;
+		private final int from;
+		private final int to;
+		private final int grain;
+
+		Block(Range body, int from, int to, int grain) {
+			this.body = body;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= grain) {
+				body.run(from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new Block(body, from, mid, grain), new Block(body, mid, to, grain));
+		}
+	}
+}
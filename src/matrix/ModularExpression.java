@@ -0,0 +1,507 @@
+package matrix;
+
+import java.math.BigInteger;
+
+/**
+ * A lazy expression of modular matrices.<BR>
+ * The operations only record the expression, and evaluate() computes it.
+ * The element-wise operations (add, sub, scalar, schurExp) are fused: every
+ * entry of the result goes through the whole chain at once and is reduced
+ * once, without intermediate matrices. A product that the long or limb
+ * kernels do not compute is computed entry by entry into its consumer, so
+ * a sum of products is reduced once, and multi(..).schurExp(..) reduces the
+ * product only by the modulus of the exponents and never the powers again.
+ * Powers by a FixedBaseTable are computed by its kernel from the evaluated
+ * exponents. exponent(x1).exponent(x2) (mod p) is evaluated as
+ * exponent(x1 * x2 (mod p - 1)) when p is prime and the base is (mod p).<BR>
+ * evaluateInto(dst) writes the value into a MutableModularMatrix instead of a
+ * new matrix.<BR>
+ * An expression is immutable and can be evaluated more than once.
+ */
+public abstract class ModularExpression {
+	static final int PRIME_CERTAINTY = 64;
+
+	final int rows;
+	final int cols;
+	final BigInteger mod;
+
+	ModularExpression(int rows, int cols, BigInteger mod) {
+		if (mod.compareTo(new BigInteger("2")) < 0)
+			throw new IllegalArgumentException("mod must be greater than 2.");
+		this.rows = rows;
+		this.cols = cols;
+		this.mod = mod;
+	}
+
+	/** The entry (i, j), congruent to it (mod m) if not reduced(). */
+	interface Entries {
+		BigInteger get(int i, int j);
+	}
+
+	/** Prepares the entries, and evaluates what is not fused. */
+	abstract Entries entries();
+
+	/** Estimated work of an entry. */
+	abstract long cost();
+
+	/** Returns true if the entries are reduced (mod m). */
+	boolean reduced() {
+		return false;
+	}
+
+	/** Returns true if evaluate() does not compute entry by entry. */
+	boolean materialized() {
+		return false;
+	}
+
+	/** Returns an expression of 'm'. */
+	public static ModularExpression of(ModularMatrix m) {
+		return new Leaf(m);
+	}
+
+	public int getRowSize() {
+		return rows;
+	}
+
+	public int getColumnSize() {
+		return cols;
+	}
+
+	public BigInteger getModulus() {
+		return mod;
+	}
+
+	/** this + x (mod m) */
+	public ModularExpression add(ModularExpression x, BigInteger mod) {
+		return new Sum(this, x, false, mod);
+	}
+
+	public ModularExpression add(ModularMatrix x, BigInteger mod) {
+		return add(of(x), mod);
+	}
+
+	/** this - x (mod m) */
+	public ModularExpression sub(ModularExpression x, BigInteger mod) {
+		return new Sum(this, x, true, mod);
+	}
+
+	public ModularExpression sub(ModularMatrix x, BigInteger mod) {
+		return sub(of(x), mod);
+	}
+
+	/** scalar * this (mod m of this) */
+	public ModularExpression scalar(BigInteger scalar) {
+		return new Scalar(this, scalar);
+	}
+
+	/** this * x (mod m) */
+	public ModularExpression multi(ModularExpression x, BigInteger mod) {
+		return new Multi(this, x, mod);
+	}
+
+	public ModularExpression multi(ModularMatrix x, BigInteger mod) {
+		return multi(of(x), mod);
+	}
+
+	/** M[i][j] = base<sup>this[i][j]</sup> (mod m). 0<sup>0</sup>=0 */
+	public ModularExpression schurExp(BigInteger base, BigInteger mod) {
+		return new Power(this, base, null, mod);
+	}
+
+	/**
+	 * M[i][j] = base<sup>this[i][j]</sup> (mod m) by the powers of the base
+	 * in 'table'. 0<sup>0</sup>=0
+	 */
+	public ModularExpression schurExp(FixedBaseTable table) {
+		return new Power(this, table.getBase(), table, table.getModulus());
+	}
+
+	/** M[i][j] = this[i][j]<sup>x[i][j]</sup> (mod m). 0<sup>0</sup>=0 */
+	public ModularExpression schurExp(ModularExpression x, BigInteger mod) {
+		return new SchurPower(this, x, mod);
+	}
+
+	public ModularExpression schurExp(ModularMatrix x, BigInteger mod) {
+		return schurExp(of(x), mod);
+	}
+
+	/** M[i][j] = Π<sub>k</sub>(this[i][k]<sup>x[k][j]</sup>) (mod m) */
+	public ModularExpression exponent(ModularExpression x, BigInteger mod) {
+		return new Exponent(this, x, mod);
+	}
+
+	public ModularExpression exponent(ModularMatrix x, BigInteger mod) {
+		return exponent(of(x), mod);
+	}
+
+	/** Returns the value of this expression. */
+	public ModularMatrix evaluate() {
+		return evaluate(entries(), reduced(), cost());
+	}
+
+	/**
+	 * Writes the value of this expression into 'dst' of the same size, whose
+	 * modulus becomes m.
+	 *
+	 * @return dst
+	 */
+	public MutableModularMatrix evaluateInto(MutableModularMatrix dst) {
+		evaluate(entries(), reduced(), cost(), dst.target(rows, cols, mod));
+		return dst;
+	}
+
+	ModularMatrix evaluate(Entries e, boolean r, long cost) {
+		BigInteger[][] res = new BigInteger[rows][cols];
+		evaluate(e, r, cost, res);
+		return ModularMatrix.ofReduced(res, mod);
+	}
+
+	private void evaluate(Entries e, boolean r, long cost, BigInteger[][] res) {
+		MatrixPool.forRange(rows * cols, cost, (from, to) -> {
+			for (int k = from; k < to; k++) {
+				BigInteger v = e.get(k / cols, k % cols);
+				res[k / cols][k % cols] = r ? v : v.mod(mod);
+			}
+		});
+	}
+
+	// the entry of 'x' as an operand of an operation (mod m), unreduced if
+	// the moduli are the same
+	static BigInteger operand(ModularExpression x, Entries e, int i, int j, BigInteger m) {
+		BigInteger v = e.get(i, j);
+		return (x.reduced() || x.mod.equals(m)) ? v : v.mod(x.mod);
+	}
+
+	static Entries entries(ModularMatrix m) {
+		BigInteger[][] d = m.data;
+		return (i, j) -> d[i][j];
+	}
+
+	private static void checkAdd(ModularExpression l, ModularExpression r) {
+		if (!(l.rows == r.rows && l.cols == r.cols))
+			throw new ArrayIndexOutOfBoundsException(
+					"L:(" + l.rows + ", " + l.cols + "), R:(" + r.rows + ", " + r.cols + ")");
+	}
+
+	private static void checkMul(ModularExpression l, ModularExpression r) {
+		if (!(l.cols == r.rows))
+			throw new ArrayIndexOutOfBoundsException("L:(" + l.rows + "," + l.cols + "), R:(" + r.rows + "," + r.cols + ")");
+	}
+
+	private static final class Leaf extends ModularExpression {
+		private final ModularMatrix m;
+
+		Leaf(ModularMatrix m) {
+			super(m.rows, m.cols, m.getModulus());
+			this.m = m;
+		}
+
+		@Override
+		Entries entries() {
+			return entries(m);
+		}
+
+		@Override
+		long cost() {
+			return 1;
+		}
+
+		@Override
+		boolean reduced() {
+			return true;
+		}
+
+		@Override
+		boolean materialized() {
+			return true;
+		}
+
+		@Override
+		public ModularMatrix evaluate() {
+			return m;
+		}
+
+		@Override
+		public MutableModularMatrix evaluateInto(MutableModularMatrix dst) {
+			return dst.assign(m);
+		}
+	}
+
+	private static final class Sum extends ModularExpression {
+		private final ModularExpression l;
+		private final ModularExpression r;
+		private final boolean negate;
+
+		Sum(ModularExpression l, ModularExpression r, boolean negate, BigInteger mod) {
+			super(l.rows, l.cols, mod);
+			checkAdd(l, r);
+			this.l = l;
+			this.r = r;
+			this.negate = negate;
+		}
+
+		@Override
+		Entries entries() {
+			Entries a = l.entries();
+			Entries b = r.entries();
+			return (i, j) -> {
+				BigInteger x = operand(l, a, i, j, mod);
+				BigInteger y = operand(r, b, i, j, mod);
+				return negate ? x.subtract(y) : x.add(y);
+			};
+		}
+
+		@Override
+		long cost() {
+			return l.cost() + r.cost();
+		}
+	}
+
+	private static final class Scalar extends ModularExpression {
+		private final ModularExpression x;
+		private final BigInteger scalar;
+
+		Scalar(ModularExpression x, BigInteger scalar) {
+			super(x.rows, x.cols, x.mod);
+			this.x = x;
+			this.scalar = scalar;
+		}
+
+		@Override
+		Entries entries() {
+			Entries e = x.entries();
+			return (i, j) -> e.get(i, j).multiply(scalar);
+		}
+
+		@Override
+		long cost() {
+			return x.cost() + MatrixPool.mulCost(mod.bitLength());
+		}
+	}
+
+	private static final class Multi extends ModularExpression {
+		private final ModularExpression l;
+		private final ModularExpression r;
+
+		Multi(ModularExpression l, ModularExpression r, BigInteger mod) {
+			super(l.rows, r.cols, mod);
+			checkMul(l, r);
+			this.l = l;
+			this.r = r;
+		}
+
+		@Override
+		boolean materialized() {
+			return ModularMatrix.multiKernel(l.mod, r.mod, mod);
+		}
+
+		@Override
+		boolean reduced() {
+			return materialized();
+		}
+
+		@Override
+		long cost() {
+			return materialized() ? 1 : l.cols * MatrixPool.mulCost(mod.bitLength());
+		}
+
+		@Override
+		public ModularMatrix evaluate() {
+			return l.evaluate().multi(r.evaluate(), mod);
+		}
+
+		@Override
+		public MutableModularMatrix evaluateInto(MutableModularMatrix dst) {
+			return l.evaluate().multiInto(dst, r.evaluate(), mod);
+		}
+
+		@Override
+		Entries entries() {
+			if (materialized())
+				return entries(evaluate());
+			BigInteger[][] a = l.evaluate().data;
+			BigInteger[][] b = r.evaluate().data;
+			return (i, j) -> {
+				BigInteger v = BigInteger.ZERO;
+				for (int k = 0; k < l.cols; k++)
+					v = v.add(a[i][k].multiply(b[k][j]));
+				return v;
+			};
+		}
+	}
+
+	private static final class Power extends ModularExpression {
+		private final ModularExpression x;
+		private final BigInteger base;
+		private final FixedBaseTable table;
+
+		Power(ModularExpression x, BigInteger base, FixedBaseTable table, BigInteger mod) {
+			super(x.rows, x.cols, mod);
+			this.x = x;
+			this.base = base;
+			this.table = table;
+		}
+
+		@Override
+		boolean reduced() {
+			return true;
+		}
+
+		@Override
+		long cost() {
+			return x.cost() + MatrixPool.powCost(x.mod.bitLength(), mod.bitLength());
+		}
+
+		private FixedBaseTable table() {
+			if (table != null)
+				return table;
+			if (base.signum() != 0 && FixedBaseTable.pays(mod, x.mod.bitLength(), rows * cols))
+				return new FixedBaseTable(base, mod, x.mod.bitLength(), rows * cols);
+			return null;
+		}
+
+		// the kernels of the tables win over fusing the exponents, null if
+		// fused
+		private ModularMatrix kernel() {
+			if (table == null && LongModulus.fits(mod) && LongModulus.fits(x.mod) && base.signum() >= 0
+					&& base.compareTo(mod) < 0)
+				return x.evaluate().longs().schurExp(base.longValue(), mod.longValue()).toModularMatrix();
+			FixedBaseTable t = table();
+			if (t != null)
+				return t.schurExp(x.evaluate());
+			return null;
+		}
+
+		@Override
+		public ModularMatrix evaluate() {
+			ModularMatrix k = kernel();
+			return (k != null) ? k : super.evaluate();
+		}
+
+		@Override
+		public MutableModularMatrix evaluateInto(MutableModularMatrix dst) {
+			ModularMatrix k = kernel();
+			return (k != null) ? dst.assign(k) : super.evaluateInto(dst);
+		}
+
+		@Override
+		Entries entries() {
+			Entries e = x.entries();
+			FixedBaseTable t = table();
+			return (i, j) -> {
+				BigInteger v = e.get(i, j);
+				if (!x.reduced())
+					v = v.mod(x.mod);
+				return (t != null) ? t.pow(v) : ModularMatrix.schurExp(base, v, mod);
+			};
+		}
+	}
+
+	private static final class SchurPower extends ModularExpression {
+		private final ModularExpression b;
+		private final ModularExpression x;
+
+		SchurPower(ModularExpression b, ModularExpression x, BigInteger mod) {
+			super(b.rows, b.cols, mod);
+			checkAdd(b, x);
+			this.b = b;
+			this.x = x;
+		}
+
+		@Override
+		boolean reduced() {
+			return true;
+		}
+
+		@Override
+		long cost() {
+			return b.cost() + x.cost() + MatrixPool.powCost(x.mod.bitLength(), mod.bitLength());
+		}
+
+		// the long kernel, null if fused
+		private ModularMatrix kernel() {
+			if (b.materialized() && x.materialized() && LongModulus.fits(mod) && LongModulus.fits(b.mod)
+					&& LongModulus.fits(x.mod))
+				return b.evaluate().longs().schurExp(x.evaluate().longs(), mod.longValue()).toModularMatrix();
+			return null;
+		}
+
+		@Override
+		public ModularMatrix evaluate() {
+			ModularMatrix k = kernel();
+			return (k != null) ? k : super.evaluate();
+		}
+
+		@Override
+		public MutableModularMatrix evaluateInto(MutableModularMatrix dst) {
+			ModularMatrix k = kernel();
+			return (k != null) ? dst.assign(k) : super.evaluateInto(dst);
+		}
+
+		@Override
+		Entries entries() {
+			Entries eb = b.entries();
+			Entries ex = x.entries();
+			return (i, j) -> {
+				BigInteger v = eb.get(i, j);
+				BigInteger e = ex.get(i, j);
+				return ModularMatrix.schurExp(b.reduced() ? v : v.mod(b.mod), x.reduced() ? e : e.mod(x.mod), mod);
+			};
+		}
+	}
+
+	private static final class Exponent extends ModularExpression {
+		private final ModularExpression b;
+		private final ModularExpression x;
+
+		Exponent(ModularExpression b, ModularExpression x, BigInteger mod) {
+			super(b.rows, x.cols, mod);
+			checkMul(b, x);
+			this.b = b;
+			this.x = x;
+		}
+
+		@Override
+		boolean reduced() {
+			return true;
+		}
+
+		@Override
+		boolean materialized() {
+			return true;
+		}
+
+		@Override
+		long cost() {
+			return 1;
+		}
+
+		@Override
+		Entries entries() {
+			return entries(evaluate());
+		}
+
+		// (b^x1)^x2 = b^(x1 x2), the order of b divides p - 1 if b is (mod p)
+		// too: an entry of b (mod m) that is 0 (mod p) is not 0 in b^(x1 x2)
+		private Exponent fold() {
+			if (b instanceof Exponent) {
+				Exponent e = (Exponent) b;
+				if (e.mod.equals(mod) && e.b.mod.equals(mod) && mod.isProbablePrime(PRIME_CERTAINTY))
+					return new Exponent(e.b, e.x.multi(x, mod.subtract(BigInteger.ONE)), mod).fold();
+			}
+			return this;
+		}
+
+		@Override
+		public ModularMatrix evaluate() {
+			Exponent e = fold();
+			return e.b.evaluate().exponent(e.x.evaluate(), mod);
+		}
+
+		@Override
+		public MutableModularMatrix evaluateInto(MutableModularMatrix dst) {
+			Exponent e = fold();
+			return e.b.evaluate().exponentInto(dst, e.x.evaluate(), mod);
+		}
+	}
+}
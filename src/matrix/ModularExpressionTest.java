@@ -0,0 +1,68 @@
+package matrix;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * exponent(x1).exponent(x2) (mod a prime p) of a ModularExpression against
+ * the two exponents evaluated one by one.<BR>
+ * A base (mod p) is folded into exponent(x1 * x2 (mod p - 1)); a base
+ * (mod 2p) is not, as its entries p are 0 only after the first exponent.
+ * About one in four entries of a base is 0 (mod p).
+ */
+public class ModularExpressionTest {
+	static final int[] BITS = { 31, 61, 130 };
+
+	public static void main(String[] args) {
+		int suc = 0;
+		int num = 200;
+
+		Random random = new Random();
+		for (int i = 0; i < num; i++) {
+			boolean ok = fixed();
+			for (int bits : BITS) {
+				BigInteger p = BigInteger.probablePrime(bits, random);
+				ok &= fold(random, p, p) && fold(random, p, p.shiftLeft(1));
+			}
+			if (ok)
+				suc++;
+		}
+		System.out.println(suc + "/" + num);
+	}
+
+	// entries below m, 0 or p (mod m) about one in four
+	static ModularMatrix random(Random random, int d, BigInteger p, BigInteger m) {
+		BigInteger[][] a = new BigInteger[d][d];
+		for (int i = 0; i < d; i++)
+			for (int j = 0; j < d; j++)
+				a[i][j] = random.nextInt(4) == 0 ? p.multiply(BigInteger.valueOf(random.nextInt(2))).mod(m)
+						: new BigInteger(m.bitLength() + 8, random).mod(m);
+		return new ModularMatrix(a, m);
+	}
+
+	// y (mod m) to the exponents x1 and x2 (mod p - 1), then (mod p)
+	static boolean fold(Random random, BigInteger p, BigInteger m) {
+		int d = 1 + random.nextInt(5);
+		BigInteger q = p.subtract(BigInteger.ONE);
+		ModularMatrix y = random(random, d, p, m), x1 = random(random, d, q, q), x2 = random(random, d, q, q);
+		return check(y, x1, x2, p);
+	}
+
+	static boolean check(ModularMatrix y, ModularMatrix x1, ModularMatrix x2, BigInteger p) {
+		ModularMatrix e = y.exponent(x1, p).exponent(x2, p);
+		ModularExpression lazy = ModularExpression.of(y).exponent(x1, p).exponent(x2, p);
+		MutableModularMatrix dst = new MutableModularMatrix(e.rows, e.cols, p);
+		return e.equals(lazy.evaluate()) && e.equals(lazy.evaluateInto(dst).toModularMatrix());
+	}
+
+	// y = [[p, 1], [2, 5]] (mod 2p), whose row 0 is 0 in y^x1 (mod p)
+	static boolean fixed() {
+		BigInteger p = BigInteger.valueOf(1000003);
+		BigInteger q = p.subtract(BigInteger.ONE);
+		ModularMatrix y = new ModularMatrix(new BigInteger[][] { { p, BigInteger.ONE },
+				{ BigInteger.TWO, BigInteger.valueOf(5) } }, p.shiftLeft(1));
+		ModularMatrix x1 = new ModularMatrix(new BigInteger[][] { { BigInteger.ZERO, BigInteger.ONE },
+				{ BigInteger.ONE, BigInteger.ONE } }, q);
+		return check(y, x1, ModularMatrix.idm(2, q), p);
+	}
+}
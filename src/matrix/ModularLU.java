@@ -0,0 +1,199 @@
+package matrix;
+
+import java.math.BigInteger;
+
+/**
+ * LU factorization PA = LU of a square matrix over Z/mZ by Gaussian
+ * elimination with unit pivots. det, rank and inverse cost O(d<sup>3</sup>)
+ * once, and every {@link #solve(ModularMatrix)} after that O(d<sup>2</sup>)
+ * per column. The rows below a pivot are eliminated in parallel on
+ * MatrixPool.<BR>
+ * Over a composite modulus a column may have no unit left. Then det and
+ * inverse fall back to the gcd based elimination of RingElimination, which
+ * stays polynomial without factoring the modulus.
+ */
+public final class ModularLU {
+	private final ModularMatrix source;
+	private final BigInteger mod;
+	private final int n;
+
+	// L below the diagonal (unit diagonal), U on and above it
+	private final BigInteger[][] lu;
+	private final BigInteger[] diagInv;
+	private final int[] perm;
+	private boolean negate;
+	private int rank;
+	// a nonzero column without unit was met
+	private boolean blocked;
+
+	private ModularMatrix inverse;
+
+	/**
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             a is not square
+	 */
+	public ModularLU(ModularMatrix a) {
+		a.checkSquare();
+		source = a;
+		mod = a.getModulus();
+		n = a.rows;
+		lu = a.cloneData();
+		diagInv = new BigInteger[n];
+		perm = new int[n];
+		for (int i = 0; i < n; i++)
+			perm[i] = i;
+		factorize();
+	}
+
+	private void factorize() {
+		int r = 0;
+		for (int c = 0; c < n && r < n; c++) {
+			int p = -1;
+			boolean zero = true;
+			for (int i = r; i < n && p < 0; i++) {
+				if (lu[i][c].signum() == 0)
+					continue;
+				zero = false;
+				if (BatchInverse.isUnit(lu[i][c], mod))
+					p = i;
+			}
+			if (zero)
+				continue;
+			if (p < 0) {
+				blocked = true;
+				return;
+			}
+			if (p != r) {
+				BigInteger[] t = lu[p];
+				lu[p] = lu[r];
+				lu[r] = t;
+				int s = perm[p];
+				perm[p] = perm[r];
+				perm[r] = s;
+				negate = !negate;
+			}
+
+			BigInteger inv = lu[r][c].modInverse(mod);
+			diagInv[r] = inv;
+			eliminate(r, c, inv);
+			r++;
+		}
+		rank = r;
+	}
+
+	// clears column c below the pivot lu[r][c], the rows in parallel
+	private void eliminate(int r, int c, BigInteger inv) {
+		BigInteger[] pivot = lu[r];
+		MatrixPool.forRange(n - r - 1, (n - c) * MatrixPool.mulCost(mod.bitLength()), (from, to) -> {
+			for (int i = r + 1 + from; i < r + 1 + to; i++) {
+				BigInteger[] row = lu[i];
+				if (row[c].signum() == 0)
+					continue;
+				BigInteger f = row[c].multiply(inv).mod(mod);
+				row[c] = f;
+				for (int j = c + 1; j < n; j++)
+					row[j] = row[j].subtract(f.multiply(pivot[j])).mod(mod);
+			}
+		});
+	}
+
+	public ModularMatrix getMatrix() {
+		return source;
+	}
+
+	public BigInteger getModulus() {
+		return mod;
+	}
+
+	/** Returns true if the elimination found a unit pivot in every column. */
+	public boolean isFactorized() {
+		return !blocked && rank == n;
+	}
+
+	/**
+	 * Returns the rank, which is the number of unit pivots.
+	 *
+	 * @throws ArithmeticException
+	 *             the elimination met a nonzero column without unit
+	 */
+	public int rank() {
+		if (blocked)
+			throw new ArithmeticException("no unit pivot (mod " + mod + "), rank is not defined.");
+		return rank;
+	}
+
+	/** Returns the determinant (mod m). */
+	public BigInteger det() {
+		if (blocked)
+			return RingElimination.det(source.cloneData(), mod);
+		if (rank < n)
+			return BigInteger.ZERO;
+		BigInteger det = negate ? mod.subtract(BigInteger.ONE) : BigInteger.ONE;
+		for (int i = 0; i < n; i++)
+			det = det.multiply(lu[i][i]).mod(mod);
+		return det;
+	}
+
+	public boolean isInvertible() {
+		if (blocked)
+			return BatchInverse.isUnit(det(), mod);
+		return rank == n;
+	}
+
+	/**
+	 * @throws NotInvertibleException
+	 *             the matrix is not invertible
+	 */
+	public ModularMatrix inverse() throws NotInvertibleException {
+		if (inverse == null) {
+			if (blocked)
+				inverse = ringInverse();
+			else
+				inverse = solve(source.idm(n));
+		}
+		return inverse;
+	}
+
+	private ModularMatrix ringInverse() {
+		BigInteger[][] inv = RingElimination.inverse(source.data, mod);
+		if (inv == null)
+			throw new NotInvertibleException(source);
+		return ModularMatrix.ofReduced(inv, mod);
+	}
+
+	/**
+	 * Returns X such that AX = b (mod m).
+	 *
+	 * @throws NotInvertibleException
+	 *             the matrix is not invertible
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             the row size of b is not the dimension of the matrix
+	 */
+	public ModularMatrix solve(ModularMatrix b) throws NotInvertibleException {
+		if (b.rows != n)
+			throw new ArrayIndexOutOfBoundsException("A:(" + n + "," + n + "), b:(" + b.rows + "," + b.cols + ")");
+		if (blocked)
+			return inverse().multi(b, mod);
+		if (rank < n)
+			throw new NotInvertibleException(source);
+
+		BigInteger[][] x = new BigInteger[n][b.cols];
+		for (int c = 0; c < b.cols; c++) {
+			// Ly = Pb
+			for (int i = 0; i < n; i++) {
+				BigInteger v = b.data[perm[i]][c];
+				for (int k = 0; k < i; k++)
+					v = v.subtract(lu[i][k].multiply(x[k][c]));
+				x[i][c] = v.mod(mod);
+			}
+			// Ux = y
+			for (int i = n - 1; i >= 0; i--) {
+				BigInteger v = x[i][c];
+				for (int k = i + 1; k < n; k++)
+					v = v.subtract(lu[i][k].multiply(x[k][c]));
+				x[i][c] = v.multiply(diagInv[i]).mod(mod);
+			}
+		}
+		return ModularMatrix.ofReduced(x, mod);
+	}
+}
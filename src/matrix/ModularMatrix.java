@@ -9,7 +9,13 @@ import matrix.NotInvertibleException;
 
 public class ModularMatrix extends AbstractMatrix<ModularMatrix, BigInteger> implements Serializable {
 	private static final long serialVersionUID = 5248461084963693155L;
+	// above this, BigInteger.multiply wins over the limb slab kernel
+	private static final int LIMB_MULTI_BITS = 128;
 	private final BigInteger modulus;
+	// transposed data, for the kernels reading by column
+	private transient volatile BigInteger[][] columns;
+	// the entries for the long kernels
+	private transient volatile LongModularMatrix longs;
 
 	public ModularMatrix(BigInteger[][] d, BigInteger mod) {
 		super(d.length, d[0].length, d);
@@ -22,6 +28,16 @@ public class ModularMatrix extends AbstractMatrix<ModularMatrix, BigInteger> imp
 		modulus = mod;
 	}
 
+	// 'd' must be already reduced by 'mod'.
+	private ModularMatrix(BigInteger mod, BigInteger[][] d) {
+		super(d.length, d[0].length, d);
+		modulus = mod;
+	}
+
+	static ModularMatrix ofReduced(BigInteger[][] d, BigInteger mod) {
+		return new ModularMatrix(mod, d);
+	}
+
 	// Serialize
 	// [0] = d (1 bytes)
 	// [1 : 2] = mL(mod length) (2 bytes)
@@ -149,9 +165,7 @@ public class ModularMatrix extends AbstractMatrix<ModularMatrix, BigInteger> imp
 	@Override
 	public ModularMatrix set(int r, int c, BigInteger val) {
 		checkIndex(r, c);
-		BigInteger[][] res = cloneData();
-		res[r][c] = val.mod(modulus);
-		return new ModularMatrix(res, modulus);
+		return new MutableModularMatrix(this).set(r, c, val).toModularMatrix();
 	}
 
 	@Override
@@ -177,20 +191,11 @@ public class ModularMatrix extends AbstractMatrix<ModularMatrix, BigInteger> imp
 
 	@Override
 	public ModularMatrix scalar(BigInteger scalar) {
-		BigInteger[][] res = new BigInteger[rows][cols];
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < cols; j++)
-				res[i][j] = get(i, j).multiply(scalar).mod(modulus);
-		return new ModularMatrix(res, modulus);
+		return ModularExpression.of(this).scalar(scalar).evaluate();
 	}
 
 	public ModularMatrix add(ModularMatrix mat, BigInteger mod) {
-		checkAdd(mat);
-		BigInteger[][] res = new BigInteger[rows][cols];
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < cols; j++)
-				res[i][j] = get(i, j).add(mat.get(i, j).mod(mod));
-		return new ModularMatrix(res, mod);
+		return ModularExpression.of(this).add(mat, mod).evaluate();
 	}
 
 	@Override
@@ -200,12 +205,7 @@ public class ModularMatrix extends AbstractMatrix<ModularMatrix, BigInteger> imp
 	}
 
 	public ModularMatrix sub(ModularMatrix mat, BigInteger mod) {
-		checkAdd(mat);
-		BigInteger[][] res = new BigInteger[rows][cols];
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < cols; j++)
-				res[i][j] = get(i, j).subtract((mat.get(i, j)).mod(mod));
-		return new ModularMatrix(res, mod);
+		return ModularExpression.of(this).sub(mat, mod).evaluate();
 	}
 
 	@Override
@@ -217,14 +217,79 @@ public class ModularMatrix extends AbstractMatrix<ModularMatrix, BigInteger> imp
 	public ModularMatrix multi(ModularMatrix mat, BigInteger mod) {
 		checkMul(mat);
 		BigInteger[][] res = new BigInteger[rows][mat.cols];
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < mat.cols; j++) {
-				BigInteger v = BigInteger.ZERO;
-				for (int k = 0; k < cols; k++)
-					v = v.add(data[i][k].multiply(mat.data[k][j]));
-				res[i][j] = v.mod(mod);
-			}
-		return new ModularMatrix(res, mod);
+		multi(mat, mod, res);
+		return ofReduced(res, mod);
+	}
+
+	/**
+	 * Writes this * mat (mod 'mod') into 'dst' of rows × mat.cols, whose
+	 * modulus becomes 'mod'.
+	 *
+	 * @return dst
+	 */
+	public MutableModularMatrix multiInto(MutableModularMatrix dst, ModularMatrix mat, BigInteger mod) {
+		checkMul(mat);
+		multi(mat, mod, dst.target(rows, mat.cols, mod));
+		return dst;
+	}
+
+	private void multi(ModularMatrix mat, BigInteger mod, BigInteger[][] res) {
+		if (fitsLong(this, mat, mod)) {
+			longs().multi(mat.longs(), mod.longValue()).copyTo(res);
+			return;
+		}
+		if (multiKernel(modulus, mat.modulus, mod)) {
+			LimbMatrix.multi(this, mat, new LimbModulus(mod), res);
+			return;
+		}
+		if (Strassen.pays(rows, cols, mat.cols, Strassen.bigCutoff(mod.bitLength()))) {
+			Strassen.multi(data, mat.data, mod, res);
+			return;
+		}
+		BigInteger[][] c = mat.columns();
+		long cost = (long) cols * mat.cols * MatrixPool.mulCost(mod.bitLength());
+		MatrixPool.forRange(rows, cost, (from, to) -> {
+			for (int i = from; i < to; i++)
+				for (int j = 0; j < mat.cols; j++) {
+					BigInteger[] a = data[i];
+					BigInteger[] b = c[j];
+					BigInteger v = BigInteger.ZERO;
+					for (int k = 0; k < cols; k++)
+						v = v.add(a[k].multiply(b[k]));
+					res[i][j] = v.mod(mod);
+				}
+		});
+	}
+
+	/** Returns the transposed data, computed once. */
+	BigInteger[][] columns() {
+		BigInteger[][] c = columns;
+		if (c == null) {
+			c = new BigInteger[cols][rows];
+			for (int i = 0; i < rows; i++)
+				for (int j = 0; j < cols; j++)
+					c[j][i] = data[i][j];
+			columns = c;
+		}
+		return c;
+	}
+
+	/** Returns the entries as a LongModularMatrix, converted once. */
+	LongModularMatrix longs() {
+		LongModularMatrix l = longs;
+		if (l == null)
+			longs = l = new LongModularMatrix(this);
+		return l;
+	}
+
+	/**
+	 * Returns true if a product (mod m) of matrices of the moduli is computed
+	 * by the long or limb kernels.
+	 */
+	static boolean multiKernel(BigInteger lmod, BigInteger rmod, BigInteger mod) {
+		if (LongModulus.fits(mod) && LongModulus.fits(lmod) && LongModulus.fits(rmod))
+			return true;
+		return LimbModulus.fits(mod) && mod.bitLength() <= LIMB_MULTI_BITS;
 	}
 
 	@Override
@@ -233,6 +298,108 @@ public class ModularMatrix extends AbstractMatrix<ModularMatrix, BigInteger> imp
 		return multi(mat, modulus);
 	}
 
+	/**
+	 * return ls[n] * mat (mod m) for every n.<BR>
+	 * ls are stacked into one matrix of their total rows and multiplied by
+	 * mat at once, so mat is prepared only once and the rows of all of them
+	 * run in parallel.
+	 */
+	public static ModularMatrix[] multi(ModularMatrix[] ls, ModularMatrix mat, BigInteger mod) {
+		if (ls.length == 0)
+			return new ModularMatrix[0];
+		int rows = 0;
+		for (ModularMatrix l : ls) {
+			l.checkMul(mat);
+			rows += l.rows;
+		}
+		// the rows are shared, unless they have to be reduced
+		BigInteger[][] d = new BigInteger[rows][];
+		int i = 0;
+		for (ModularMatrix l : ls) {
+			BigInteger[][] ld = l.modulus.equals(mod) ? l.data : l.changeMod(mod).data;
+			for (int r = 0; r < l.rows; r++)
+				d[i++] = ld[r];
+		}
+
+		ModularMatrix prod = ofReduced(d, mod).multi(mat, mod);
+		ModularMatrix[] res = new ModularMatrix[ls.length];
+		i = 0;
+		for (int n = 0; n < ls.length; n++) {
+			res[n] = ofReduced(Arrays.copyOfRange(prod.data, i, i + ls[n].rows), mod);
+			i += ls[n].rows;
+		}
+		return res;
+	}
+
+	/**
+	 * return a modular matrix M = Σ<sub>t</sub>(ls[t] * rs[t]) (mod m)
+	 */
+	public static ModularMatrix multi(ModularMatrix[] ls, ModularMatrix[] rs, BigInteger mod) {
+		ModularMatrix[][] r = { rs };
+		return multi(ls, r, mod)[0];
+	}
+
+	/**
+	 * return modular matrices M<sub>s</sub> =
+	 * Σ<sub>t</sub>(ls[t] * rs[s][t]) (mod m).<BR>
+	 * The sums are one product of ls side by side, rows × Σ cols, by rs
+	 * stacked, and the sets of rs side by side. Every entry is accumulated
+	 * over all t before it is reduced, and the rows run in parallel.
+	 *
+	 * @throws IllegalArgumentException
+	 *             number of ls and rs are different
+	 */
+	public static ModularMatrix[] multi(ModularMatrix[] ls, ModularMatrix[][] rs, BigInteger mod) {
+		int inner = 0;
+		for (int t = 0; t < ls.length; t++) {
+			if (ls[t].rows != ls[0].rows)
+				throw new ArrayIndexOutOfBoundsException("ls[0]:(" + ls[0].rows + "," + ls[0].cols + "), ls[" + t
+						+ "]:(" + ls[t].rows + "," + ls[t].cols + ")");
+			inner += ls[t].cols;
+		}
+		int[] at = new int[rs.length + 1];
+		for (int s = 0; s < rs.length; s++) {
+			if (rs[s].length != ls.length)
+				throw new IllegalArgumentException("number of ls and rs are different.");
+			for (int t = 0; t < ls.length; t++) {
+				ls[t].checkMul(rs[s][t]);
+				if (rs[s][t].cols != rs[s][0].cols)
+					throw new ArrayIndexOutOfBoundsException("rs[" + s + "][0]:(" + rs[s][0].rows + "," + rs[s][0].cols
+							+ "), rs[" + s + "][" + t + "]:(" + rs[s][t].rows + "," + rs[s][t].cols + ")");
+			}
+			at[s + 1] = at[s] + rs[s][0].cols;
+		}
+
+		// [ls[0] ls[1] ...] * [rs[.][0] ; rs[.][1] ; ...]
+		BigInteger[][] l = new BigInteger[ls[0].rows][inner];
+		BigInteger[][] r = new BigInteger[inner][at[rs.length]];
+		int k = 0;
+		for (int t = 0; t < ls.length; t++) {
+			for (int i = 0; i < ls[t].rows; i++)
+				for (int j = 0; j < ls[t].cols; j++)
+					l[i][k + j] = reduce(ls[t], ls[t].data[i][j], mod);
+			for (int s = 0; s < rs.length; s++)
+				for (int i = 0; i < rs[s][t].rows; i++)
+					for (int j = 0; j < rs[s][t].cols; j++)
+						r[k + i][at[s] + j] = reduce(rs[s][t], rs[s][t].data[i][j], mod);
+			k += ls[t].cols;
+		}
+
+		ModularMatrix prod = ofReduced(l, mod).multi(ofReduced(r, mod), mod);
+		ModularMatrix[] res = new ModularMatrix[rs.length];
+		for (int s = 0; s < rs.length; s++) {
+			BigInteger[][] d = new BigInteger[prod.rows][at[s + 1] - at[s]];
+			for (int i = 0; i < prod.rows; i++)
+				System.arraycopy(prod.data[i], at[s], d[i], 0, d[i].length);
+			res[s] = ofReduced(d, mod);
+		}
+		return res;
+	}
+
+	private static BigInteger reduce(ModularMatrix m, BigInteger v, BigInteger mod) {
+		return m.modulus.equals(mod) ? v : v.mod(mod);
+	}
+
 	@Override
 	public ModularMatrix pow(int exponent) throws NotInvertibleException {
 		checkSquare();
@@ -240,16 +407,18 @@ public class ModularMatrix extends AbstractMatrix<ModularMatrix, BigInteger> imp
 		if (exponent == 0)
 			return idm(rows);
 
-		ModularMatrix res = this;
-
+		ModularMatrix base = this;
 		if (exponent < 0) {
-			res = res.inverse();
+			base = base.inverse();
 			exponent = -exponent;
 		}
 
-		for (int i = 1; i < exponent; i++)
-			res = res.multi(this);
-
+		ModularMatrix res = base;
+		for (int i = 30 - Integer.numberOfLeadingZeros(exponent); i >= 0; i--) {
+			res = res.multi(res);
+			if (((exponent >>> i) & 1) == 1)
+				res = res.multi(base);
+		}
 		return res;
 	}
 
@@ -259,11 +428,7 @@ public class ModularMatrix extends AbstractMatrix<ModularMatrix, BigInteger> imp
 	}
 
 	public ModularMatrix schurExp(BigInteger base, BigInteger mod) {
-		BigInteger[][] res = new BigInteger[rows][cols];
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < cols; j++)
-				res[i][j] = schurExp(base, get(i, j), mod);
-		return new ModularMatrix(res, mod);
+		return ModularExpression.of(this).schurExp(base, mod).evaluate();
 	}
 
 	@Override
@@ -272,12 +437,25 @@ public class ModularMatrix extends AbstractMatrix<ModularMatrix, BigInteger> imp
 	}
 
 	public ModularMatrix schurExp(ModularMatrix mat, BigInteger mod) {
-		checkAdd(mat);
-		BigInteger[][] res = new BigInteger[rows][cols];
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < cols; j++)
-				res[i][j] = schurExp(get(i, j), mat.get(i, j), mod);
-		return new ModularMatrix(res, mod);
+		return ModularExpression.of(this).schurExp(mat, mod).evaluate();
+	}
+
+	/**
+	 * Writes schurExp(base, mod) into 'dst', whose modulus becomes 'mod'.
+	 *
+	 * @return dst
+	 */
+	public MutableModularMatrix schurExpInto(MutableModularMatrix dst, BigInteger base, BigInteger mod) {
+		return ModularExpression.of(this).schurExp(base, mod).evaluateInto(dst);
+	}
+
+	/**
+	 * Writes schurExp(mat, mod) into 'dst', whose modulus becomes 'mod'.
+	 *
+	 * @return dst
+	 */
+	public MutableModularMatrix schurExpInto(MutableModularMatrix dst, ModularMatrix mat, BigInteger mod) {
+		return ModularExpression.of(this).schurExp(mat, mod).evaluateInto(dst);
 	}
 
 	static BigInteger schurExp(BigInteger base, BigInteger exponent, BigInteger mod) {
@@ -287,6 +465,20 @@ public class ModularMatrix extends AbstractMatrix<ModularMatrix, BigInteger> imp
 			return base.modPow(exponent, mod);
 	}
 
+	public static boolean isStrassenExponent() {
+		return Strassen.isExponentEnabled();
+	}
+
+	/**
+	 * Enables the Strassen-Winograd recursion in exponent and
+	 * exponentReversely (mod a prime) for dimensions of 256 and more. It is
+	 * off by default: it gains only on the largest matrices, and is slower
+	 * than the multi exponentiation at 64 and 128.
+	 */
+	public static void setStrassenExponent(boolean enabled) {
+		Strassen.setExponentEnabled(enabled);
+	}
+
 	/**
 	 * return a modular matrix M : M[i][j] =
 	 * Π<sub>k</sub>(this[i][k]<sup>mat[k][j]</sup>)
@@ -294,14 +486,87 @@ public class ModularMatrix extends AbstractMatrix<ModularMatrix, BigInteger> imp
 	public ModularMatrix exponent(ModularMatrix m, BigInteger mod) {
 		checkMul(m);
 		BigInteger[][] res = new BigInteger[rows][m.cols];
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < m.cols; j++) {
-				BigInteger v = BigInteger.ONE;
-				for (int k = 0; k < cols; k++)
-					v = v.multiply(schurExp(data[i][k], m.data[k][j], mod));
-				res[i][j] = v;
-			}
-		return new ModularMatrix(res, mod);
+		exponent(m, mod, res);
+		return ofReduced(res, mod);
+	}
+
+	/**
+	 * Writes exponent(m, mod) into 'dst' of rows × m.cols, whose modulus
+	 * becomes 'mod'.
+	 *
+	 * @return dst
+	 */
+	public MutableModularMatrix exponentInto(MutableModularMatrix dst, ModularMatrix m, BigInteger mod) {
+		checkMul(m);
+		exponent(m, mod, dst.target(rows, m.cols, mod));
+		return dst;
+	}
+
+	private void exponent(ModularMatrix m, BigInteger mod, BigInteger[][] res) {
+		ModularMatrix[][] b = { { this } };
+		ModularMatrix[] x = { m };
+		ModularMatrix[] s = Strassen.exponent(b, x, false, null, mod);
+		if (s != null) {
+			copy(s[0], res);
+			return;
+		}
+		if (fitsLong(this, m, mod)) {
+			longs().exponent(m.longs(), mod.longValue()).copyTo(res);
+			return;
+		}
+		if (LimbModulus.fits(mod)) {
+			BigInteger[][][] r = { res };
+			exponentClassical(b, new ExponentRecoding(x, false), mod, r);
+			return;
+		}
+		BigInteger[][] c = m.columns();
+		long cost = (long) cols * m.cols * MatrixPool.powCost(m.modulus.bitLength(), mod.bitLength());
+		MatrixPool.forRange(rows, cost, (from, to) -> {
+			for (int i = from; i < to; i++)
+				for (int j = 0; j < m.cols; j++) {
+					BigInteger v = BigInteger.ONE;
+					for (int k = 0; k < cols && v.signum() != 0; k++)
+						v = v.multiply(schurExp(data[i][k], c[j][k], mod)).mod(mod);
+					res[i][j] = v;
+				}
+		});
+	}
+
+	/**
+	 * return a modular matrix M : M[i][j] =
+	 * Π<sub>k</sub>(this[i][k]<sup>exps[k][j]</sup>) for the exponents exps
+	 * recoded in 'r'.
+	 *
+	 * @throws IllegalArgumentException
+	 *             'r' is not a recoding for exponent
+	 */
+	public ModularMatrix exponent(ExponentRecoding r, BigInteger mod) {
+		checkRecoding(r, false);
+		BigInteger[][][] res = { new BigInteger[rows][r.entries] };
+		ModularMatrix[][] b = { { this } };
+		exponent(b, r, mod, res);
+		return ofReduced(res[0], mod);
+	}
+
+	/**
+	 * Writes exponent(r, mod) into 'dst', whose modulus becomes 'mod'.
+	 *
+	 * @return dst
+	 * @throws IllegalArgumentException
+	 *             'r' is not a recoding for exponent
+	 */
+	public MutableModularMatrix exponentInto(MutableModularMatrix dst, ExponentRecoding r, BigInteger mod) {
+		checkRecoding(r, false);
+		BigInteger[][][] res = { dst.target(rows, r.entries, mod) };
+		ModularMatrix[][] b = { { this } };
+		exponent(b, r, mod, res);
+		return dst;
+	}
+
+	private static void checkRecoding(ExponentRecoding r, boolean reversely) {
+		if (r.reversely != reversely)
+			throw new IllegalArgumentException(
+					"the recoding is not for " + (reversely ? "exponentReversely." : "exponent."));
 	}
 
 	/**
@@ -310,15 +575,173 @@ public class ModularMatrix extends AbstractMatrix<ModularMatrix, BigInteger> imp
 	 */
 	public ModularMatrix exponentReversely(ModularMatrix m, BigInteger mod) {
 		checkMul(m);
+		ModularMatrix[][] b = { { this } };
+		ModularMatrix[] x = { m };
+		ModularMatrix[] s = Strassen.exponent(b, x, true, null, mod);
+		if (s != null)
+			return s[0];
+		if (fitsLong(this, m, mod))
+			return longs().exponentReversely(m.longs(), mod.longValue()).toModularMatrix();
+		if (LimbModulus.fits(mod))
+			return exponentClassical(b, new ExponentRecoding(x, true), mod)[0];
 		BigInteger[][] res = new BigInteger[rows][m.cols];
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < m.cols; j++) {
-				BigInteger v = BigInteger.ONE;
-				for (int k = 0; k < cols; k++)
-					v = v.multiply(schurExp(data[k][j], m.data[i][k], mod));
-				res[i][j] = v;
+		BigInteger[][] c = columns();
+		long cost = (long) cols * m.cols * MatrixPool.powCost(m.modulus.bitLength(), mod.bitLength());
+		MatrixPool.forRange(rows, cost, (from, to) -> {
+			for (int i = from; i < to; i++)
+				for (int j = 0; j < m.cols; j++) {
+					BigInteger v = BigInteger.ONE;
+					for (int k = 0; k < cols && v.signum() != 0; k++)
+						v = v.multiply(schurExp(c[j][k], m.data[i][k], mod)).mod(mod);
+					res[i][j] = v;
+				}
+		});
+		return ofReduced(res, mod);
+	}
+
+	/**
+	 * return a modular matrix M : M[i][j] =
+	 * Π<sub>t</sub>Π<sub>k</sub>(bases[t][k][j]<sup>exps[t][i][k]</sup>)
+	 */
+	public static ModularMatrix exponentReversely(ModularMatrix[] bases, ModularMatrix[] exps, BigInteger mod) {
+		if (bases.length != exps.length)
+			throw new IllegalArgumentException("number of bases and exponents are different.");
+		ModularMatrix[][] b = { bases };
+		ModularMatrix[] s = Strassen.exponent(b, exps, true, null, mod);
+		if (s != null)
+			return s[0];
+		if (fitsLong(bases, exps, mod)) {
+			LongModularMatrix[] lb = new LongModularMatrix[bases.length];
+			LongModularMatrix[] lx = new LongModularMatrix[exps.length];
+			for (int t = 0; t < bases.length; t++) {
+				lb[t] = bases[t].longs();
+				lx[t] = exps[t].longs();
 			}
-		return new ModularMatrix(res, mod);
+			return LongModularMatrix.exponentReversely(lb, lx, mod.longValue()).toModularMatrix();
+		}
+		if (LimbModulus.fits(mod))
+			return exponentClassical(b, new ExponentRecoding(exps, true), mod)[0];
+
+		int rows = exps[0].rows;
+		int cols = bases[0].cols;
+		long cost = 0;
+		for (int t = 0; t < bases.length; t++) {
+			exps[t].checkMul(bases[t]);
+			cost += (long) exps[t].cols * cols * MatrixPool.powCost(exps[t].modulus.bitLength(), mod.bitLength());
+		}
+		BigInteger[][] res = new BigInteger[rows][cols];
+		BigInteger[][][] c = new BigInteger[bases.length][][];
+		for (int t = 0; t < bases.length; t++)
+			c[t] = bases[t].columns();
+		MatrixPool.forRange(rows, cost, (from, to) -> {
+			for (int i = from; i < to; i++)
+				for (int j = 0; j < cols; j++) {
+					BigInteger v = BigInteger.ONE;
+					for (int t = 0; t < bases.length; t++)
+						for (int k = 0; k < exps[t].cols && v.signum() != 0; k++)
+							v = v.multiply(schurExp(c[t][j][k], exps[t].data[i][k], mod)).mod(mod);
+					res[i][j] = v;
+				}
+		});
+		return ofReduced(res, mod);
+	}
+
+	/**
+	 * return a modular matrix M : M[i][j] =
+	 * Π<sub>t</sub>Π<sub>k</sub>(bases[t][k][j]<sup>exps[t][i][k]</sup>)
+	 * for the exponents recoded in 'r'.
+	 */
+	public static ModularMatrix exponentReversely(ModularMatrix[] bases, ExponentRecoding r, BigInteger mod) {
+		ModularMatrix[][] b = { bases };
+		return exponentReversely(b, r, mod)[0];
+	}
+
+	/**
+	 * return modular matrices M<sub>s</sub> : M<sub>s</sub>[i][j] =
+	 * Π<sub>t</sub>Π<sub>k</sub>(bases[s][t][k][j]<sup>exps[t][i][k]</sup>)
+	 * for the exponents recoded in 'r'. Every set of bases walks the digits
+	 * of an entry in the same sweep.
+	 *
+	 * @throws IllegalArgumentException
+	 *             'r' is not a recoding for exponentReversely
+	 */
+	public static ModularMatrix[] exponentReversely(ModularMatrix[][] bases, ExponentRecoding r, BigInteger mod) {
+		checkRecoding(r, true);
+		BigInteger[][][] res = MultiExp.newResults(bases, r);
+		exponent(bases, r, mod, res);
+		ModularMatrix[] mats = new ModularMatrix[res.length];
+		for (int s = 0; s < res.length; s++)
+			mats[s] = ofReduced(res[s], mod);
+		return mats;
+	}
+
+	/**
+	 * Writes exponentReversely(bases, r, mod) into dst[s] for every set of
+	 * bases, whose moduli become 'mod'.
+	 *
+	 * @return dst
+	 * @throws IllegalArgumentException
+	 *             'r' is not a recoding for exponentReversely, or the numbers
+	 *             of bases and dst are different
+	 */
+	public static MutableModularMatrix[] exponentReverselyInto(MutableModularMatrix[] dst, ModularMatrix[][] bases,
+			ExponentRecoding r, BigInteger mod) {
+		checkRecoding(r, true);
+		if (dst.length != bases.length)
+			throw new IllegalArgumentException("number of bases and dst are different.");
+		BigInteger[][][] res = new BigInteger[dst.length][][];
+		for (int s = 0; s < dst.length; s++)
+			res[s] = dst[s].target(r.entries, bases[s][0].cols, mod);
+		exponent(bases, r, mod, res);
+		return dst;
+	}
+
+	private static void exponent(ModularMatrix[][] bases, ExponentRecoding r, BigInteger mod, BigInteger[][][] res) {
+		ModularMatrix[] s = Strassen.exponent(bases, r.exps, r.reversely, r, mod);
+		if (s != null)
+			for (int k = 0; k < s.length; k++)
+				copy(s[k], res[k]);
+		else
+			exponentClassical(bases, r, mod, res);
+	}
+
+	/** exponent of the recoded exponents without the Strassen recursion. */
+	static ModularMatrix[] exponentClassical(ModularMatrix[][] bases, ExponentRecoding r, BigInteger mod) {
+		BigInteger[][][] res = MultiExp.newResults(bases, r);
+		exponentClassical(bases, r, mod, res);
+		ModularMatrix[] mats = new ModularMatrix[res.length];
+		for (int s = 0; s < res.length; s++)
+			mats[s] = ofReduced(res[s], mod);
+		return mats;
+	}
+
+	private static void exponentClassical(ModularMatrix[][] bases, ExponentRecoding r, BigInteger mod,
+			BigInteger[][][] res) {
+		if (LimbModulus.fits(mod) && LongModulus.fits(mod))
+			MultiExp.exponent(bases, r, new LongModulus(mod.longValue()), res);
+		else if (LimbModulus.fits(mod))
+			MultiExp.exponent(bases, r, new LimbModulus(mod), res);
+		else
+			for (int s = 0; s < bases.length; s++)
+				copy(r.reversely ? exponentReversely(bases[s], r.exps, mod) : bases[s][0].exponent(r.exps[0], mod),
+						res[s]);
+	}
+
+	// the entries of 'm' into the rows 'res'
+	private static void copy(ModularMatrix m, BigInteger[][] res) {
+		for (int i = 0; i < m.rows; i++)
+			System.arraycopy(m.data[i], 0, res[i], 0, m.cols);
+	}
+
+	private static boolean fitsLong(ModularMatrix l, ModularMatrix r, BigInteger mod) {
+		return LongModulus.fits(mod) && LongModulus.fits(l.modulus) && LongModulus.fits(r.modulus);
+	}
+
+	private static boolean fitsLong(ModularMatrix[] l, ModularMatrix[] r, BigInteger mod) {
+		for (int t = 0; t < l.length; t++)
+			if (!fitsLong(l[t], r[t], mod))
+				return false;
+		return true;
 	}
 
 	public BigInteger[][] cloneData() {
@@ -331,26 +754,12 @@ public class ModularMatrix extends AbstractMatrix<ModularMatrix, BigInteger> imp
 
 	@Override
 	public ModularMatrix exchangeRow(int i, int j) {
-		checkIndex(i, cols);
-		checkIndex(j, cols);
-		BigInteger[][] res = cloneData();
-		for (int k = 0; k < cols; k++) {
-			res[i][k] = get(j, k);
-			res[j][k] = get(i, k);
-		}
-		return new ModularMatrix(res, modulus);
+		return new MutableModularMatrix(this).exchangeRow(i, j).toModularMatrix();
 	}
 
 	@Override
 	public ModularMatrix exchangeCol(int i, int j) {
-		checkIndex(rows, i);
-		checkIndex(rows, j);
-		BigInteger[][] res = cloneData();
-		for (int k = 0; k < cols; k++) {
-			res[k][i] = get(k, j);
-			res[k][j] = get(k, i);
-		}
-		return new ModularMatrix(res, modulus);
+		return new MutableModularMatrix(this).exchangeCol(i, j).toModularMatrix();
 	}
 
 	@Override
@@ -389,37 +798,81 @@ public class ModularMatrix extends AbstractMatrix<ModularMatrix, BigInteger> imp
 			return BigInteger.ONE.negate();
 	}
 
+	/**
+	 * Returns the determinant (mod m) by Gaussian elimination.
+	 */
 	@Override
 	public BigInteger det() {
 		checkSquare();
-		return subDet();
-	}
-
-	private BigInteger subDet() {
-		if (rows == 1 && cols == 1)
-			return get(0, 0);
-		else {
-			BigInteger sc = BigInteger.ZERO;
-			for (int i = 0; i < rows; i++)
-				// (-1)^(i+0) * a_i0 * det(A'i0)
-				sc = sc.add(sign(i, 0).multiply(get(i, 0).multiply(subMatrix(i, 0).subDet())));
-			return sc;
-		}
+		if (LongModulus.fits(modulus))
+			return BigInteger.valueOf(longs().det());
+		return lu().det();
 	}
 
 	@Override
 	public BigInteger cofactor(int r, int c) {
-		return sign(r, c).multiply(subMatrix(r, c).det());
+		return sign(r, c).multiply(subMatrix(r, c).det()).mod(modulus);
 	}
 
+	/**
+	 * Returns the LU factorization of this matrix for repeated solves.
+	 */
+	public ModularLU lu() {
+		return new ModularLU(this);
+	}
+
+	/**
+	 * Returns the inverse matrix by Gauss-Jordan elimination. A triangular
+	 * matrix is inverted by substitution, and its diagonal by one batch
+	 * inversion.
+	 *
+	 * @throws NotInvertibleException
+	 *             this matrix is not invertible
+	 */
 	@Override
 	public ModularMatrix inverse() throws NotInvertibleException {
 		checkSquare();
-		BigInteger[][] res = new BigInteger[rows][cols];
+		if (LongModulus.fits(modulus))
+			return longs().inverse().toModularMatrix();
+		if (triangular(data))
+			return ofReduced(lowerInverse(data), modulus);
+		BigInteger[][] c = columns();
+		if (triangular(c))
+			return ofReduced(lowerInverse(c), modulus).transpose();
+		return lu().inverse();
+	}
+
+	// true if 'a' is lower triangular
+	private boolean triangular(BigInteger[][] a) {
 		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < cols; j++)
-				res[i][j] = cofactor(j, i);
-		return new ModularMatrix(res, modulus).scalar(det().modInverse(modulus));
+			for (int j = i + 1; j < cols; j++)
+				if (a[i][j].signum() != 0)
+					return false;
+		return true;
+	}
+
+	// the inverse of the lower triangular 'l' by forward substitution
+	private BigInteger[][] lowerInverse(BigInteger[][] l) {
+		BigInteger[] diag = new BigInteger[rows];
+		for (int i = 0; i < rows; i++)
+			diag[i] = l[i][i];
+		BigInteger[] inv = BatchInverse.inverse(diag, modulus);
+		if (inv == null)
+			throw new NotInvertibleException(this);
+
+		BigInteger[][] res = new BigInteger[rows][rows];
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < i; j++) {
+				BigInteger v = BigInteger.ZERO;
+				for (int k = j; k < i; k++)
+					v = v.add(l[i][k].multiply(res[k][j]));
+				res[i][j] = v.negate().multiply(inv[i]).mod(modulus);
+			}
+			res[i][i] = inv[i];
+			for (int j = i + 1; j < rows; j++)
+				res[i][j] = BigInteger.ZERO;
+		}
+		return res;
 	}
 
 	public ModularMatrix changeMod(BigInteger mod) {
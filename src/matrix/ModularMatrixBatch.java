@@ -0,0 +1,301 @@
+package matrix;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import crypto.ssa5.interfaces.Serializable;
+
+/**
+ * I matrices of the same size and modulus, the slices of an I × rows × cols
+ * tensor.<BR>
+ * The slices are stored one under another as a single (I rows) × cols
+ * matrix, so an operation on every slice (multi by a matrix, schurExp,
+ * exponent by a matrix) is one kernel call on the stack, whose rows run in
+ * parallel on MatrixPool. The sums over the slices (multiSum,
+ * exponentReversely) are one product of the slices side by side, and each
+ * entry is reduced once. The slices as ModularMatrix share the rows of the
+ * stack and are made only on demand.<BR>
+ * The byte form is that of the slices one after another. A batch is
+ * immutable.
+ */
+public final class ModularMatrixBatch implements Serializable {
+	private static final long serialVersionUID = -2651840913217446915L;
+	private final int count;
+	private final int rows;
+	private final int cols;
+	private final ModularMatrix stack;
+	// the slices sharing the rows of the stack, made on demand
+	private transient volatile ModularMatrix[] slices;
+
+	/**
+	 * A batch of 'count' slices, the rows of 'stack' taken in turn.
+	 *
+	 * @throws IllegalArgumentException
+	 *             count is not positive or does not divide the rows of stack
+	 */
+	public ModularMatrixBatch(ModularMatrix stack, int count) {
+		if (count <= 0 || stack.rows % count != 0)
+			throw new IllegalArgumentException("count must divide the rows.(" + stack.rows + ", " + count + ")");
+		this.count = count;
+		rows = stack.rows / count;
+		cols = stack.cols;
+		this.stack = stack;
+	}
+
+	/**
+	 * A batch of the matrices 'ms', sharing their rows.
+	 *
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             the sizes of ms are different
+	 * @throws IllegalArgumentException
+	 *             ms is empty, or the moduli of ms are different
+	 */
+	public ModularMatrixBatch(ModularMatrix[] ms) {
+		this(stack(ms), ms.length);
+		slices = ms.clone();
+	}
+
+	private static ModularMatrix stack(ModularMatrix[] ms) {
+		if (ms.length == 0)
+			throw new IllegalArgumentException("no matrix.");
+		ModularMatrix m0 = ms[0];
+		BigInteger[][] d = new BigInteger[ms.length * m0.rows][];
+		for (int t = 0; t < ms.length; t++) {
+			ModularMatrix m = ms[t];
+			if (!(m.rows == m0.rows && m.cols == m0.cols))
+				throw new ArrayIndexOutOfBoundsException(
+						"ms[0]:(" + m0.rows + "," + m0.cols + "), ms[" + t + "]:(" + m.rows + "," + m.cols + ")");
+			if (!m.getModulus().equals(m0.getModulus()))
+				throw new IllegalArgumentException("modulus is different " + m0.getModulus() + ", " + m.getModulus());
+			System.arraycopy(m.data, 0, d, t * m0.rows, m0.rows);
+		}
+		return ModularMatrix.ofReduced(d, m0.getModulus());
+	}
+
+	/** Returns a batch of 'count' slices of the value of 'stack'. */
+	public static ModularMatrixBatch of(ModularExpression stack, int count) {
+		return new ModularMatrixBatch(stack.evaluate(), count);
+	}
+
+	// Serialize
+	@Override
+	public byte[] toByteArray() {
+		byte[] res = new byte[byteArrayLength()];
+		int pos = 0;
+		for (ModularMatrix m : slices()) {
+			byte[] b = m.toByteArray();
+			System.arraycopy(b, 0, res, pos, b.length);
+			pos += b.length;
+		}
+		return res;
+	}
+
+	@Override
+	public int byteArrayLength() {
+		return count * slices()[0].byteArrayLength();
+	}
+
+	// Deserialize
+	public ModularMatrixBatch(byte[] array, int pos, int count) {
+		this(read(array, pos, count));
+	}
+
+	private static ModularMatrix[] read(byte[] array, int pos, int count) {
+		ModularMatrix[] ms = new ModularMatrix[count];
+		for (int t = 0; t < count; t++) {
+			ms[t] = new ModularMatrix(array, pos);
+			pos += ms[t].byteArrayLength();
+		}
+		return ms;
+	}
+
+	/** Returns the number of slices. */
+	public int size() {
+		return count;
+	}
+
+	public int getRowSize() {
+		return rows;
+	}
+
+	public int getColumnSize() {
+		return cols;
+	}
+
+	public BigInteger getModulus() {
+		return stack.getModulus();
+	}
+
+	/** Returns the slices one under another, (size() rows) × cols. */
+	public ModularMatrix getStack() {
+		return stack;
+	}
+
+	/** Returns the slice 't'. */
+	public ModularMatrix get(int t) {
+		if (!(0 <= t && t < count))
+			throw new ArrayIndexOutOfBoundsException("size:" + count + "(" + t + ")");
+		return slices()[t];
+	}
+
+	/** Returns the slices. */
+	public ModularMatrix[] toArray() {
+		return slices().clone();
+	}
+
+	private ModularMatrix[] slices() {
+		ModularMatrix[] s = slices;
+		if (s == null) {
+			s = new ModularMatrix[count];
+			for (int t = 0; t < count; t++)
+				s[t] = ModularMatrix.ofReduced(Arrays.copyOfRange(stack.data, t * rows, (t + 1) * rows),
+						stack.getModulus());
+			slices = s;
+		}
+		return s;
+	}
+
+	/** Returns an expression of the stack, for fused operations on every slice. */
+	public ModularExpression expression() {
+		return ModularExpression.of(stack);
+	}
+
+	/** return this[t] * mat (mod m) for every t, one product of the stack. */
+	public ModularMatrixBatch multi(ModularMatrix mat, BigInteger mod) {
+		return new ModularMatrixBatch(stack.multi(mat, mod), count);
+	}
+
+	/** M[t][i][j] = base<sup>this[t][i][j]</sup> (mod m). 0<sup>0</sup>=0 */
+	public ModularMatrixBatch schurExp(BigInteger base, BigInteger mod) {
+		return new ModularMatrixBatch(stack.schurExp(base, mod), count);
+	}
+
+	/**
+	 * M[t][i][j] = base<sup>this[t][i][j]</sup> (mod m) by the powers of the
+	 * base in 'table'. 0<sup>0</sup>=0
+	 */
+	public ModularMatrixBatch schurExp(FixedBaseTable table) {
+		return of(expression().schurExp(table), count);
+	}
+
+	/**
+	 * M[t][i][j] = Π<sub>k</sub>(this[t][i][k]<sup>mat[k][j]</sup>) (mod m)
+	 * for every t, one exponent of the stack.
+	 */
+	public ModularMatrixBatch exponent(ModularMatrix mat, BigInteger mod) {
+		return new ModularMatrixBatch(stack.exponent(mat, mod), count);
+	}
+
+	/** return a modular matrix M = Σ<sub>t</sub>(this[t] * r[t]) (mod m) */
+	public ModularMatrix multiSum(ModularMatrixBatch r, BigInteger mod) {
+		ModularMatrixBatch[] rs = { r };
+		return multiSum(rs, mod)[0];
+	}
+
+	/**
+	 * return modular matrices M<sub>s</sub> =
+	 * Σ<sub>t</sub>(this[t] * rs[s][t]) (mod m).<BR>
+	 * The sums are one product of the slices side by side, rows × (I cols),
+	 * by the stacks of rs side by side, so a single set of rs is multiplied
+	 * as it is stored.
+	 *
+	 * @throws IllegalArgumentException
+	 *             the sizes of this and rs are different
+	 */
+	public ModularMatrix[] multiSum(ModularMatrixBatch[] rs, BigInteger mod) {
+		int[] at = new int[rs.length + 1];
+		for (int s = 0; s < rs.length; s++) {
+			if (rs[s].count != count)
+				throw new IllegalArgumentException("size of batches are different.(" + count + ", " + rs[s].count + ")");
+			if (rs[s].rows != cols)
+				throw new ArrayIndexOutOfBoundsException(
+						"L:(" + rows + "," + cols + "), R:(" + rs[s].rows + "," + rs[s].cols + ")");
+			at[s + 1] = at[s] + rs[s].cols;
+		}
+
+		// [this[0] this[1] ...] * [rs[.] stacks side by side]
+		BigInteger[][] l = new BigInteger[rows][count * cols];
+		for (int t = 0; t < count; t++)
+			for (int i = 0; i < rows; i++)
+				reduce(stack, t * rows + i, l[i], t * cols, mod);
+		ModularMatrix r;
+		if (rs.length == 1 && rs[0].getModulus().equals(mod))
+			r = rs[0].stack;
+		else {
+			BigInteger[][] d = new BigInteger[count * cols][at[rs.length]];
+			for (int s = 0; s < rs.length; s++)
+				for (int k = 0; k < count * cols; k++)
+					reduce(rs[s].stack, k, d[k], at[s], mod);
+			r = ModularMatrix.ofReduced(d, mod);
+		}
+
+		ModularMatrix prod = ModularMatrix.ofReduced(l, mod).multi(r, mod);
+		if (rs.length == 1)
+			return new ModularMatrix[] { prod };
+		ModularMatrix[] res = new ModularMatrix[rs.length];
+		for (int s = 0; s < rs.length; s++) {
+			BigInteger[][] d = new BigInteger[rows][at[s + 1] - at[s]];
+			for (int i = 0; i < rows; i++)
+				System.arraycopy(prod.data[i], at[s], d[i], 0, d[i].length);
+			res[s] = ModularMatrix.ofReduced(d, mod);
+		}
+		return res;
+	}
+
+	// the row 'i' of 'm' (mod 'mod') into dst from 'off'
+	private static void reduce(ModularMatrix m, int i, BigInteger[] dst, int off, BigInteger mod) {
+		if (m.getModulus().equals(mod))
+			System.arraycopy(m.data[i], 0, dst, off, m.cols);
+		else
+			for (int j = 0; j < m.cols; j++)
+				dst[off + j] = m.data[i][j].mod(mod);
+	}
+
+	/**
+	 * return a modular matrix M : M[i][j] =
+	 * Π<sub>t</sub>Π<sub>k</sub>(bases[t][k][j]<sup>exps[t][i][k]</sup>)
+	 */
+	public static ModularMatrix exponentReversely(ModularMatrixBatch bases, ModularMatrixBatch exps, BigInteger mod) {
+		return ModularMatrix.exponentReversely(bases.slices(), exps.slices(), mod);
+	}
+
+	/**
+	 * return modular matrices M<sub>s</sub> : M<sub>s</sub>[i][j] =
+	 * Π<sub>t</sub>Π<sub>k</sub>(bases[s][t][k][j]<sup>exps[t][i][k]</sup>)
+	 * for the exponents recoded in 'r', every set of bases in one sweep.
+	 *
+	 * @throws IllegalArgumentException
+	 *             'r' is not a recoding for exponentReversely
+	 */
+	public static ModularMatrix[] exponentReversely(ModularMatrixBatch[] bases, ExponentRecoding r, BigInteger mod) {
+		ModularMatrix[][] b = new ModularMatrix[bases.length][];
+		for (int s = 0; s < bases.length; s++)
+			b[s] = bases[s].slices();
+		return ModularMatrix.exponentReversely(b, r, mod);
+	}
+
+	/**
+	 * return a modular matrix M : M[i][j] =
+	 * Π<sub>t</sub>Π<sub>k</sub>(bases[t][k][j]<sup>exps[t][i][k]</sup>)
+	 * for the exponents recoded in 'r'.
+	 */
+	public static ModularMatrix exponentReversely(ModularMatrixBatch bases, ExponentRecoding r, BigInteger mod) {
+		ModularMatrixBatch[] b = { bases };
+		return exponentReversely(b, r, mod)[0];
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof ModularMatrixBatch))
+			return false;
+		ModularMatrixBatch other = (ModularMatrixBatch) obj;
+		return count == other.count && getModulus().equals(other.getModulus()) && stack.equals(other.stack);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.deepHashCode(stack.data) * 31 + count;
+	}
+}
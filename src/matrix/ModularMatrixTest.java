@@ -0,0 +1,151 @@
+package matrix;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * det, inverse and pow of ModularMatrix over a prime p and over q = p - 1,
+ * by the long kernels (p < 2<sup>62</sup>) and by ModularLU.<BR>
+ * det is checked against the integer determinant by FractionFree and by
+ * det(AB) = det(A)det(B), inverse by A * A<sup>-1</sup> = I, and a matrix
+ * is not invertible iff gcd(det, m) != 1.<BR>
+ * A first column of even entries has no unit (mod p - 1), so ModularLU
+ * stops at once and det and inverse go by RingElimination; with one odd
+ * multiple of the odd part of p - 1 among them the matrix may be invertible.
+ */
+public class ModularMatrixTest {
+	static final int[] BITS = { 31, 61, 130, 256 };
+
+	public static void main(String[] args) {
+		int suc = 0;
+		int num = 200;
+
+		Random random = new Random();
+		for (int i = 0; i < num; i++) {
+			boolean ok = true;
+			for (int bits : BITS) {
+				BigInteger p = BigInteger.probablePrime(bits, random);
+				for (BigInteger m : new BigInteger[] { p, p.subtract(BigInteger.ONE) })
+					ok &= det(random, m) && inverse(random, m) && singular(random, m) && pow(random, m);
+				ok &= ring(random, p.subtract(BigInteger.ONE));
+			}
+			if (ok)
+				suc++;
+		}
+		System.out.println(suc + "/" + num);
+	}
+
+	// random entries, sometimes lower or upper triangular
+	static BigInteger[][] random(Random random, int n, BigInteger m) {
+		int shape = random.nextInt(4);
+		BigInteger[][] a = new BigInteger[n][n];
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++)
+				a[i][j] = shape == 1 && j > i || shape == 2 && j < i ? BigInteger.ZERO
+						: new BigInteger(m.bitLength() + 8, random).mod(m);
+		return a;
+	}
+
+	static BigInteger[][] copy(BigInteger[][] a) {
+		BigInteger[][] res = new BigInteger[a.length][];
+		for (int i = 0; i < a.length; i++)
+			res[i] = a[i].clone();
+		return res;
+	}
+
+	// against the integer determinant, and det(AB) = det(A)det(B)
+	static boolean det(Random random, BigInteger m) {
+		int n = 1 + random.nextInt(7);
+		BigInteger[][] a = random(random, n, m), b = random(random, n, m);
+		ModularMatrix ma = new ModularMatrix(copy(a), m), mb = new ModularMatrix(copy(b), m);
+		if (!ma.det().equals(FractionFree.det(copy(a)).mod(m)))
+			return false;
+		return ma.multi(mb).det().equals(ma.det().multiply(mb.det()).mod(m));
+	}
+
+	static boolean inverse(Random random, BigInteger m) {
+		int n = 1 + random.nextInt(7);
+		ModularMatrix a = new ModularMatrix(random(random, n, m), m);
+		boolean unit = a.det().gcd(m).equals(BigInteger.ONE);
+		ModularMatrix inv;
+		try {
+			inv = a.inverse();
+		} catch (NotInvertibleException e) {
+			return !unit;
+		}
+		ModularMatrix idm = ModularMatrix.idm(n, m);
+		return unit && a.multi(inv).equals(idm) && inv.multi(a).equals(idm) && a.lu().inverse().equals(inv);
+	}
+
+	// a row is a combination of two others, or zero if n = 1
+	static boolean singular(Random random, BigInteger m) {
+		int n = 1 + random.nextInt(7);
+		BigInteger[][] a = random(random, n, m);
+		int r = random.nextInt(n);
+		for (int j = 0; j < n; j++) {
+			BigInteger v = BigInteger.ZERO;
+			if (n > 1) {
+				int s = (r + 1) % n, t = (r + n - 1) % n;
+				v = a[s][j].multiply(BigInteger.valueOf(3)).add(a[t][j].multiply(m.subtract(BigInteger.ONE)));
+			}
+			a[r][j] = v;
+		}
+		ModularMatrix ma = new ModularMatrix(a, m);
+		if (ma.det().signum() != 0)
+			return false;
+		try {
+			ma.inverse();
+			return false;
+		} catch (NotInvertibleException e) {
+			// singular
+		}
+		try {
+			ma.lu().inverse();
+			return false;
+		} catch (NotInvertibleException e) {
+			return true;
+		}
+	}
+
+	// A^-k = (A^-1)^k, and A^k * A^-k = I
+	static boolean pow(Random random, BigInteger m) {
+		int n = 1 + random.nextInt(5);
+		ModularMatrix a = new ModularMatrix(random(random, n, m), m);
+		if (!a.det().gcd(m).equals(BigInteger.ONE))
+			return true;
+		int k = 1 + random.nextInt(9);
+		ModularMatrix neg = a.pow(-k);
+		return neg.equals(a.inverse().pow(k)) && a.pow(k).multi(neg).equals(ModularMatrix.idm(n, m))
+				&& a.pow(0).equals(ModularMatrix.idm(n, m));
+	}
+
+	// the first column without unit (mod q = p - 1): even, and sometimes one
+	// odd multiple of the odd part of q, which makes the column generate 1
+	static boolean ring(Random random, BigInteger q) {
+		int n = 2 + random.nextInt(6);
+		BigInteger[][] a = random(random, n, q);
+		for (int i = 0; i < n; i++)
+			a[i][0] = a[i][0].clearBit(0);
+		BigInteger odd = q.shiftRight(q.getLowestSetBit());
+		boolean mixed = random.nextBoolean() && !odd.equals(BigInteger.ONE);
+		if (mixed)
+			a[random.nextInt(n)][0] = odd.multiply(BigInteger.valueOf(2 * random.nextInt(1000) + 1)).mod(q);
+		ModularMatrix ma = new ModularMatrix(copy(a), q);
+		ModularLU lu = ma.lu();
+		BigInteger det = FractionFree.det(copy(a)).mod(q);
+		if (lu.isFactorized() || !lu.det().equals(det) || !ma.det().equals(det)
+				|| !RingElimination.det(copy(a), q).equals(det))
+			return false;
+		boolean unit = det.gcd(q).equals(BigInteger.ONE);
+		if (!mixed && unit)
+			return false;
+		ModularMatrix inv;
+		try {
+			inv = ma.inverse();
+		} catch (NotInvertibleException e) {
+			return !unit && RingElimination.inverse(copy(a), q) == null;
+		}
+		ModularMatrix idm = ModularMatrix.idm(n, q);
+		return unit && inv.multi(ma).equals(idm) && ma.multi(inv).equals(idm) && lu.inverse().equals(inv);
+	}
+}
@@ -0,0 +1,476 @@
+package matrix;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Simultaneous multi exponentiation Π<sub>k</sub> b<sub>k</sub><sup>e<sub>k</sub></sup>
+ * (mod m) for the exponent kernels of ModularMatrix and LongModularMatrix.<BR>
+ * Every entry of the result squares once for all of its terms. A base is
+ * shared by a whole row (exponent) or column (exponentReversely) of the
+ * result, so its odd powers are precomputed once for that line and every
+ * entry then multiplies in sliding window digits (Straus). When the terms
+ * are so many that the tables would not pay, the digits of each window
+ * are gathered in buckets instead (Pippenger).<BR>
+ * The exponents come recoded in an ExponentRecoding. Several sets of bases
+ * raised to the same exponents walk the digits of an entry together, each
+ * with its own table and accumulator.<BR>
+ * The entries of all lines are split into blocks for MatrixPool, so a few
+ * long lines run in parallel as well as many short ones. A block builds
+ * the table of a line only when it enters the line, and every entry is
+ * computed by itself, so the result does not depend on the split. The
+ * tables and accumulators of a block are the Workspace of its thread, and
+ * the entries are written into the caller's rows.<BR>
+ * The modulus must be odd; the arithmetic is Montgomery's, on a
+ * LongModulus below 2<sup>63</sup> and on a LimbModulus above.
+ */
+final class MultiExp {
+	// bases[set][t]
+	private final ModularMatrix[][] bases;
+	private final ExponentRecoding r;
+	private final int sets;
+	private final boolean reversely;
+
+	// lines share their bases, entries of a line share nothing else
+	private final int lines;
+	private final int entries;
+	private final int terms;
+	private final int bits;
+	private final int w;
+
+	private MultiExp(ModularMatrix[][] bases, ExponentRecoding r) {
+		this.bases = bases;
+		this.r = r;
+		sets = bases.length;
+		reversely = r.reversely;
+		for (int s = 0; s < sets; s++) {
+			if (bases[s].length != r.exps.length)
+				throw new IllegalArgumentException("number of bases and exponents are different.");
+			for (int t = 0; t < bases[s].length; t++) {
+				if (reversely)
+					r.exps[t].checkMul(bases[s][t]);
+				else
+					bases[s][t].checkMul(r.exps[t]);
+				bases[s][t].checkAdd(bases[0][t]);
+			}
+		}
+		lines = reversely ? bases[0][0].cols : bases[0][0].rows;
+		entries = r.entries;
+		terms = r.terms;
+		bits = r.bits;
+		w = r.w;
+	}
+
+	/**
+	 * Estimated multiplications of one entry of the result, with its share
+	 * of the table of its line.
+	 */
+	private long entryCost() {
+		long table = (w > 0) ? (long) terms << (w - 1) : terms;
+		return sets * (bits + (long) terms * bits / (Math.abs(w) + 1) + table / entries);
+	}
+
+	private BigInteger base(int s, int t, int k, int line) {
+		return reversely ? bases[s][t].data[k][line] : bases[s][t].data[line][k];
+	}
+
+	private int span() {
+		return (w > 0) ? 1 << (w - 1) : 1;
+	}
+
+	// rows of the result of a set
+	private int resultRows() {
+		return reversely ? entries : lines;
+	}
+
+	private int resultCols() {
+		return reversely ? lines : entries;
+	}
+
+	private void store(BigInteger[][] res, int line, int e, BigInteger v) {
+		if (reversely)
+			res[e][line] = v;
+		else
+			res[line][e] = v;
+	}
+
+	/** Returns the rows of the results for every set. */
+	static BigInteger[][][] newResults(ModularMatrix[][] bases, ExponentRecoding r) {
+		int lines = r.reversely ? bases[0][0].cols : bases[0][0].rows;
+		return r.reversely ? new BigInteger[bases.length][r.entries][lines]
+				: new BigInteger[bases.length][lines][r.entries];
+	}
+
+	// Pippenger digit of the term (t, k) of the entry 'e' in the window 'win'
+	private int digit(int t, int k, int e, int win, int c) {
+		int off = r.exponentOffset(t, k, e);
+		return ExponentRecoding.bits(r.x[t], off, win * c, Math.min(c, bits - win * c));
+	}
+
+	// ------------------------------------------------------------
+	// long engine
+
+	static LongModularMatrix exponent(ModularMatrix[] bases, ModularMatrix[] exps, LongModulus out,
+			boolean reversely) {
+		ModularMatrix[][] b = { bases };
+		return exponent(b, new ExponentRecoding(exps, reversely), out)[0];
+	}
+
+	static LongModularMatrix[] exponent(ModularMatrix[][] bases, ExponentRecoding r, LongModulus out) {
+		MultiExp me = new MultiExp(bases, r);
+		int cols = me.resultCols();
+		long[][] res = new long[me.sets][me.resultRows() * cols];
+		MatrixPool.forRange(me.lines * me.entries, me.entryCost(), (from, to) -> {
+			Workspace ws = Workspace.acquire();
+			try {
+				LongLine line = me.new LongLine(out, ws);
+				for (int i = from; i < to; i++) {
+					int l = i / me.entries;
+					int e = i % me.entries;
+					line.run(l, e);
+					for (int s = 0; s < me.sets; s++)
+						res[s][me.reversely ? e * cols + l : l * cols + e] = line.value(s);
+				}
+			} finally {
+				ws.release();
+			}
+		});
+		LongModularMatrix[] mats = new LongModularMatrix[me.sets];
+		for (int s = 0; s < me.sets; s++)
+			mats[s] = new LongModularMatrix(me.resultRows(), cols, res[s], out);
+		return mats;
+	}
+
+	/** Writes the results of every set into the rows res[set]. */
+	static void exponent(ModularMatrix[][] bases, ExponentRecoding r, LongModulus out, BigInteger[][][] res) {
+		MultiExp me = new MultiExp(bases, r);
+		MatrixPool.forRange(me.lines * me.entries, me.entryCost(), (from, to) -> {
+			Workspace ws = Workspace.acquire();
+			try {
+				LongLine line = me.new LongLine(out, ws);
+				for (int i = from; i < to; i++) {
+					int l = i / me.entries;
+					int e = i % me.entries;
+					line.run(l, e);
+					for (int s = 0; s < me.sets; s++)
+						me.store(res[s], l, e, BigInteger.valueOf(line.value(s)));
+				}
+			} finally {
+				ws.release();
+			}
+		});
+	}
+
+	private final class LongLine {
+		private final LongModulus m;
+		private final long one;
+		// the tables of the sets one after another
+		private final long[] table;
+		private final int stride;
+		private final long[] acc;
+		private final long[] bucket;
+		private final boolean[] filled;
+		// the line the tables are built for
+		private int line = -1;
+		// a set has a zero base in the line
+		private final boolean[] zero;
+
+		LongLine(LongModulus m, Workspace ws) {
+			this.m = m;
+			one = m.montgomeryOne();
+			stride = terms * span();
+			table = ws.longs(Workspace.TABLE, sets * stride);
+			acc = ws.longs(Workspace.ACC, sets);
+			zero = new boolean[sets];
+			if (w > 0) {
+				bucket = null;
+				filled = null;
+			} else {
+				bucket = ws.longs(Workspace.BUCKET, 1 << -w);
+				filled = new boolean[1 << -w];
+			}
+		}
+
+		void run(int line, int e) {
+			int span = span();
+			if (line != this.line)
+				load(line, span);
+			if (w > 0)
+				straus(e, span);
+			else
+				for (int s = 0; s < sets; s++)
+					if (!zero[s])
+						acc[s] = pippenger(e, s * stride);
+		}
+
+		// the entry of the set 's' of the last run
+		long value(int s) {
+			return zero[s] ? 0 : m.fromMontgomery(acc[s]);
+		}
+
+		private void load(int line, int span) {
+			this.line = line;
+			for (int s = 0; s < sets; s++) {
+				long[] tab = table;
+				int o = s * stride;
+				zero[s] = false;
+				int h = 0;
+				for (int t = 0; t < bases[s].length; t++)
+					for (int k = 0; k < r.depth(t); k++, h++) {
+						BigInteger b = base(s, t, k, line);
+						zero[s] |= b.signum() == 0;
+						long bm = m.toMontgomery(m.mod(b));
+						tab[o + h * span] = bm;
+						if (w > 1) {
+							long sq = m.montgomeryMul(bm, bm);
+							for (int j = 1; j < span; j++)
+								tab[o + h * span + j] = m.montgomeryMul(tab[o + h * span + j - 1], sq);
+						}
+					}
+			}
+		}
+
+		private void straus(int e, int span) {
+			int[] pos = r.pos[e];
+			int[] code = r.code[e];
+			Arrays.fill(acc, one);
+			if (pos.length == 0)
+				return;
+			int c = 0;
+			boolean started = false;
+			for (int p = pos[0]; p >= 0; p--) {
+				if (started)
+					for (int s = 0; s < sets; s++)
+						acc[s] = m.montgomeryMul(acc[s], acc[s]);
+				for (; c < pos.length && pos[c] == p; c++) {
+					int f = (code[c] >>> 8) * span + (code[c] & 0xFF);
+					for (int s = 0; s < sets; s++)
+						acc[s] = started ? m.montgomeryMul(acc[s], table[s * stride + f]) : table[s * stride + f];
+					started = true;
+				}
+			}
+		}
+
+		// the table of the set starts at 'o'
+		private long pippenger(int e, int o) {
+			int c = -w;
+			long acc = one;
+			boolean started = false;
+			for (int win = (bits - 1) / c; win >= 0; win--) {
+				if (started)
+					for (int i = 0; i < c; i++)
+						acc = m.montgomeryMul(acc, acc);
+				Arrays.fill(filled, false);
+				int h = 0;
+				for (int t = 0; t < r.exps.length; t++)
+					for (int k = 0; k < r.depth(t); k++, h++) {
+						int dg = digit(t, k, e, win, c);
+						if (dg == 0)
+							continue;
+						bucket[dg] = filled[dg] ? m.montgomeryMul(bucket[dg], table[o + h]) : table[o + h];
+						filled[dg] = true;
+					}
+				long sum = 0, tot = 0;
+				boolean hasSum = false, hasTot = false;
+				for (int b = bucket.length - 1; b > 0; b--) {
+					if (filled[b]) {
+						sum = hasSum ? m.montgomeryMul(sum, bucket[b]) : bucket[b];
+						hasSum = true;
+					}
+					if (hasSum) {
+						tot = hasTot ? m.montgomeryMul(tot, sum) : sum;
+						hasTot = true;
+					}
+				}
+				if (hasTot) {
+					acc = started ? m.montgomeryMul(acc, tot) : tot;
+					started = true;
+				}
+			}
+			return acc;
+		}
+	}
+
+	// ------------------------------------------------------------
+	// limb engine
+
+	/** Writes the results of every set into the rows res[set]. */
+	static void exponent(ModularMatrix[][] bases, ExponentRecoding r, LimbModulus out, BigInteger[][][] res) {
+		MultiExp me = new MultiExp(bases, r);
+		long cost = me.entryCost() * MatrixPool.mulCost(out.getModulus().bitLength());
+		MatrixPool.forRange(me.lines * me.entries, cost, (from, to) -> {
+			Workspace ws = Workspace.acquire();
+			try {
+				LimbLine line = me.new LimbLine(out, ws);
+				for (int i = from; i < to; i++) {
+					int l = i / me.entries;
+					int e = i % me.entries;
+					line.run(l, e);
+					for (int s = 0; s < me.sets; s++)
+						me.store(res[s], l, e, line.value(s));
+				}
+			} finally {
+				ws.release();
+			}
+		});
+	}
+
+	private final class LimbLine {
+		private final LimbModulus m;
+		private final int n;
+		private final long[] t;
+		// the tables of the sets one after another
+		private final int[] table;
+		private final int stride;
+		// the accumulators of the sets, then sq, sum and tot
+		private final int[] acc;
+		private final int sq;
+		private final int sum;
+		private final int tot;
+		private final int[] bucket;
+		private final boolean[] filled;
+		// the bytes of a result
+		private final byte[] buf;
+		// the line the tables are built for
+		private int line = -1;
+		// a set has a zero base in the line
+		private final boolean[] zero;
+
+		LimbLine(LimbModulus m, Workspace ws) {
+			this.m = m;
+			n = m.size();
+			t = ws.longs(Workspace.SCRATCH, 2 * n + 2);
+			stride = terms * span() * n;
+			table = ws.ints(Workspace.TABLE, sets * stride);
+			acc = ws.ints(Workspace.ACC, (sets + 3) * n);
+			sq = sets * n;
+			sum = sq + n;
+			tot = sum + n;
+			buf = ws.bytes(4 * n + 1);
+			zero = new boolean[sets];
+			if (w > 0) {
+				bucket = null;
+				filled = null;
+			} else {
+				bucket = ws.ints(Workspace.BUCKET, (1 << -w) * n);
+				filled = new boolean[1 << -w];
+			}
+		}
+
+		void run(int line, int e) {
+			int span = span();
+			if (line != this.line)
+				load(line, span);
+			if (w > 0)
+				straus(e, span);
+			else
+				for (int s = 0; s < sets; s++)
+					if (!zero[s])
+						pippenger(e, s * stride, s * n);
+		}
+
+		// the entry of the set 's' of the last run
+		BigInteger value(int s) {
+			if (zero[s])
+				return BigInteger.ZERO;
+			m.fromMontgomery(acc, s * n, acc, s * n, t);
+			return m.toBigInteger(acc, s * n, buf);
+		}
+
+		private void load(int line, int span) {
+			this.line = line;
+			for (int s = 0; s < sets; s++) {
+				zero[s] = false;
+				int h = 0;
+				for (int u = 0; u < bases[s].length; u++)
+					for (int k = 0; k < r.depth(u); k++, h++) {
+						BigInteger b = base(s, u, k, line);
+						zero[s] |= b.signum() == 0;
+						int off = s * stride + h * span * n;
+						m.reduce(b, table, off);
+						m.toMontgomery(table, off, table, off, t);
+						if (w > 1) {
+							m.sqr(table, off, acc, sq, t);
+							for (int j = 1; j < span; j++)
+								m.mul(table, off + (j - 1) * n, acc, sq, table, off + j * n, t);
+						}
+					}
+			}
+		}
+
+		private void straus(int e, int span) {
+			int[] pos = r.pos[e];
+			int[] code = r.code[e];
+			for (int s = 0; s < sets; s++)
+				m.one(acc, s * n, t);
+			if (pos.length == 0)
+				return;
+			int c = 0;
+			boolean started = false;
+			for (int p = pos[0]; p >= 0; p--) {
+				if (started)
+					for (int s = 0; s < sets; s++)
+						m.sqr(acc, s * n, acc, s * n, t);
+				for (; c < pos.length && pos[c] == p; c++) {
+					int f = ((code[c] >>> 8) * span + (code[c] & 0xFF)) * n;
+					for (int s = 0; s < sets; s++) {
+						if (started)
+							m.mul(acc, s * n, table, s * stride + f, acc, s * n, t);
+						else
+							System.arraycopy(table, s * stride + f, acc, s * n, n);
+					}
+					started = true;
+				}
+			}
+		}
+
+		// the table of the set starts at 'o', its accumulator at 'a'
+		private void pippenger(int e, int o, int a) {
+			int c = -w;
+			m.one(acc, a, t);
+			boolean started = false;
+			for (int win = (bits - 1) / c; win >= 0; win--) {
+				if (started)
+					for (int i = 0; i < c; i++)
+						m.sqr(acc, a, acc, a, t);
+				Arrays.fill(filled, false);
+				int h = 0;
+				for (int u = 0; u < r.exps.length; u++)
+					for (int k = 0; k < r.depth(u); k++, h++) {
+						int dg = digit(u, k, e, win, c);
+						if (dg == 0)
+							continue;
+						if (filled[dg])
+							m.mul(bucket, dg * n, table, o + h * n, bucket, dg * n, t);
+						else
+							System.arraycopy(table, o + h * n, bucket, dg * n, n);
+						filled[dg] = true;
+					}
+				boolean hasSum = false, hasTot = false;
+				for (int b = filled.length - 1; b > 0; b--) {
+					if (filled[b]) {
+						if (hasSum)
+							m.mul(acc, sum, bucket, b * n, acc, sum, t);
+						else
+							System.arraycopy(bucket, b * n, acc, sum, n);
+						hasSum = true;
+					}
+					if (hasSum) {
+						if (hasTot)
+							m.mul(acc, tot, acc, sum, acc, tot, t);
+						else
+							System.arraycopy(acc, sum, acc, tot, n);
+						hasTot = true;
+					}
+				}
+				if (hasTot) {
+					if (started)
+						m.mul(acc, a, acc, tot, acc, a, t);
+					else
+						System.arraycopy(acc, tot, acc, a, n);
+					started = true;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package matrix;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * exponent and exponentReversely, with and without an ExponentRecoding,
+ * against the product of modPow of every term.<BR>
+ * A few terms per entry take the Straus windows of MultiExp and many terms
+ * for one entry its Pippenger buckets; odd moduli go by LongModulus and
+ * LimbModulus, even ones by BigInteger. Some bases are 0, and a base 0 gives 0 whatever its exponent
+ * (schurExp).
+ */
+public class MultiExpTest {
+	static final int[] BITS = { 31, 61, 62, 130, 521 };
+
+	public static void main(String[] args) {
+		int suc = 0;
+		int num = 50;
+
+		Random random = new Random();
+		for (int i = 0; i < num; i++) {
+			boolean ok = true;
+			for (int bits : BITS) {
+				BigInteger m = new BigInteger(bits, random).setBit(bits - 1);
+				for (BigInteger mod : new BigInteger[] { m.setBit(0), m.clearBit(0) }) {
+					// Straus: entries of a few terms
+					ok &= check(random, mod, 1 + random.nextInt(4), 1 + random.nextInt(4), 1 + random.nextInt(4), 1);
+					// Pippenger: one entry of many terms, each with its own base
+					if (bits <= 130)
+						ok &= check(random, mod, 1, 600 + random.nextInt(400), 1, 1 + random.nextInt(2))
+								&& recoding(random, mod, 600, true) < 0;
+				}
+				ok &= recoding(random, m.setBit(0), 2, false) > 0;
+			}
+			if (ok)
+				suc++;
+		}
+		System.out.println(suc + "/" + num);
+	}
+
+	// entries below m, about one in eight 0
+	static ModularMatrix random(Random random, int rows, int cols, BigInteger m) {
+		BigInteger[][] a = new BigInteger[rows][cols];
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				a[i][j] = random.nextInt(8) == 0 ? BigInteger.ZERO : new BigInteger(m.bitLength() + 8, random).mod(m);
+		return new ModularMatrix(a, m);
+	}
+
+	// the window of a recoding of 'terms' terms for one entry (reversely) or
+	// for 'terms' entries of two terms
+	static int recoding(Random random, BigInteger m, int terms, boolean reversely) {
+		BigInteger q = m.subtract(BigInteger.ONE);
+		ModularMatrix[] x = { reversely ? random(random, 1, terms, q) : random(random, 2, terms, q) };
+		return new ExponentRecoding(x, reversely).w;
+	}
+
+	static BigInteger[] column(ModularMatrix m, int j) {
+		BigInteger[] res = new BigInteger[m.rows];
+		for (int i = 0; i < m.rows; i++)
+			res[i] = m.get(i, j);
+		return res;
+	}
+
+	// Π base^exp, 0 for a base 0
+	static BigInteger product(BigInteger[] bases, BigInteger[] exps, BigInteger mod) {
+		BigInteger v = BigInteger.ONE.mod(mod);
+		for (int k = 0; k < bases.length; k++)
+			v = v.multiply(bases[k].signum() == 0 ? BigInteger.ZERO : bases[k].modPow(exps[k], mod)).mod(mod);
+		return v;
+	}
+
+	/**
+	 * exponent of a : r × n by x : n × c, and exponentReversely of 'sets'
+	 * sets of 'terms' bases n × c by exponents r × n.
+	 */
+	static boolean check(Random random, BigInteger mod, int r, int n, int c, int sets) {
+		BigInteger q = mod.subtract(BigInteger.ONE);
+		int terms = 1 + random.nextInt(2);
+		ModularMatrix a = random(random, r, n, mod), x = random(random, n, c, q);
+		ModularMatrix[][] b = new ModularMatrix[sets][terms];
+		ModularMatrix[] y = new ModularMatrix[terms];
+		for (int t = 0; t < terms; t++) {
+			y[t] = random(random, r, n, q);
+			for (int s = 0; s < sets; s++)
+				b[s][t] = random(random, n, c, mod);
+		}
+
+		ModularMatrix e = a.exponent(x, mod);
+		if (!e.equals(a.exponent(new ExponentRecoding(x), mod)))
+			return false;
+		for (int i = 0; i < r; i++)
+			for (int j = 0; j < c; j++)
+				if (!e.get(i, j).equals(product(a.getRow(i), column(x, j), mod)))
+					return false;
+
+		ExponentRecoding rec = new ExponentRecoding(y);
+		ModularMatrix[] sr = ModularMatrix.exponentReversely(b, rec, mod);
+		for (int s = 0; s < sets; s++) {
+			ModularMatrix er = ModularMatrix.exponentReversely(b[s], y, mod);
+			if (!er.equals(sr[s]) || !er.equals(ModularMatrix.exponentReversely(b[s], rec, mod)))
+				return false;
+			// the single term version takes square matrices
+			if (terms == 1 && r == n && n == c && !er.equals(b[s][0].exponentReversely(y[0], mod)))
+				return false;
+			for (int i = 0; i < r; i++)
+				for (int j = 0; j < c; j++) {
+					BigInteger v = BigInteger.ONE.mod(mod);
+					for (int t = 0; t < terms; t++)
+						v = v.multiply(product(column(b[s][t], j), y[t].getRow(i), mod)).mod(mod);
+					if (!er.get(i, j).equals(v))
+						return false;
+				}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,160 @@
+package matrix;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * A modular matrix changed in place, the mutable companion of
+ * ModularMatrix.<BR>
+ * set and exchangeRow touch only their rows, and the kernels
+ * (ModularMatrix#multiInto, schurExpInto, exponentInto,
+ * ModularExpression#evaluateInto) write their result into it instead of a
+ * new matrix. The rows are copied on write: a row shared with a
+ * ModularMatrix, from the constructor, assign or toModularMatrix, is copied
+ * before it is changed, so a ModularMatrix never changes.<BR>
+ * A mutable matrix is not thread safe.
+ */
+public final class MutableModularMatrix {
+	final int rows;
+	final int cols;
+	private BigInteger modulus;
+	private final BigInteger[][] data;
+	// the rows this matrix may change, the others are shared
+	private final boolean[] owned;
+
+	/** A rows × cols zero matrix (mod 'mod'). */
+	public MutableModularMatrix(int rows, int cols, BigInteger mod) {
+		if (rows <= 0 || cols <= 0)
+			throw new IllegalArgumentException("size must be positive.(" + rows + ", " + cols + ")");
+		checkModulus(mod);
+		this.rows = rows;
+		this.cols = cols;
+		modulus = mod;
+		data = new BigInteger[rows][];
+		owned = new boolean[rows];
+		BigInteger[] zero = new BigInteger[cols];
+		Arrays.fill(zero, BigInteger.ZERO);
+		Arrays.fill(data, zero);
+	}
+
+	/** A matrix of the entries of 'm', sharing its rows until they change. */
+	public MutableModularMatrix(ModularMatrix m) {
+		rows = m.rows;
+		cols = m.cols;
+		modulus = m.getModulus();
+		data = m.data.clone();
+		owned = new boolean[rows];
+	}
+
+	private static void checkModulus(BigInteger mod) {
+		if (mod.compareTo(BigInteger.valueOf(2)) < 0)
+			throw new IllegalArgumentException("mod must be greater than 2.");
+	}
+
+	public int getRowSize() {
+		return rows;
+	}
+
+	public int getColumnSize() {
+		return cols;
+	}
+
+	public BigInteger getModulus() {
+		return modulus;
+	}
+
+	private void checkIndex(int i, int j) {
+		if (!(0 <= i && i < rows))
+			throw new ArrayIndexOutOfBoundsException("rows size:" + rows + "(" + i + ")");
+		if (!(0 <= j && j < cols))
+			throw new ArrayIndexOutOfBoundsException("column size:" + cols + "(" + j + ")");
+	}
+
+	public BigInteger get(int r, int c) {
+		checkIndex(r, c);
+		return data[r][c];
+	}
+
+	/** Sets the entry (r, c) to val (mod m). */
+	public MutableModularMatrix set(int r, int c, BigInteger val) {
+		checkIndex(r, c);
+		row(r)[c] = val.mod(modulus);
+		return this;
+	}
+
+	public MutableModularMatrix exchangeRow(int i, int j) {
+		checkIndex(i, 0);
+		checkIndex(j, 0);
+		BigInteger[] d = data[i];
+		data[i] = data[j];
+		data[j] = d;
+		boolean o = owned[i];
+		owned[i] = owned[j];
+		owned[j] = o;
+		return this;
+	}
+
+	public MutableModularMatrix exchangeCol(int i, int j) {
+		checkIndex(0, i);
+		checkIndex(0, j);
+		for (int k = 0; k < rows; k++) {
+			BigInteger[] d = row(k);
+			BigInteger v = d[i];
+			d[i] = d[j];
+			d[j] = v;
+		}
+		return this;
+	}
+
+	/**
+	 * Sets the entries to those of 'm', of the same size, sharing its rows
+	 * until they change.
+	 */
+	public MutableModularMatrix assign(ModularMatrix m) {
+		check(m.rows, m.cols);
+		modulus = m.getModulus();
+		System.arraycopy(m.data, 0, data, 0, rows);
+		Arrays.fill(owned, false);
+		return this;
+	}
+
+	/**
+	 * Returns a ModularMatrix of the entries. The rows are shared with it
+	 * until they change here.
+	 */
+	public ModularMatrix toModularMatrix() {
+		Arrays.fill(owned, false);
+		return ModularMatrix.ofReduced(data.clone(), modulus);
+	}
+
+	// the row 'r' to change, copied if shared
+	private BigInteger[] row(int r) {
+		if (!owned[r]) {
+			data[r] = data[r].clone();
+			owned[r] = true;
+		}
+		return data[r];
+	}
+
+	void check(int r, int c) {
+		if (!(rows == r && cols == c))
+			throw new ArrayIndexOutOfBoundsException("dst:(" + rows + ", " + cols + "), result:(" + r + ", " + c + ")");
+	}
+
+	/**
+	 * Returns the rows for a kernel that overwrites every entry with a value
+	 * reduced (mod 'mod'), which becomes the modulus. A shared row is
+	 * replaced by a new one, not copied.
+	 */
+	BigInteger[][] target(int r, int c, BigInteger mod) {
+		check(r, c);
+		checkModulus(mod);
+		modulus = mod;
+		for (int i = 0; i < rows; i++)
+			if (!owned[i]) {
+				data[i] = new BigInteger[cols];
+				owned[i] = true;
+			}
+		return data;
+	}
+}
@@ -0,0 +1,146 @@
+package matrix;
+
+import java.math.BigInteger;
+
+/**
+ * Triangularization over Z/mZ for a composite m whose factorization is
+ * unknown, such as q = p - 1.<BR>
+ * A column without unit is cleared by the unimodular row operation
+ * [[s, t], [-b/g, a/g]] with sa + tb = g = gcd(a, b) (Hermite style), so
+ * det is kept and every entry stays lower than m. It costs
+ * O(d<sup>3</sup>) multiplications of the size of m.
+ */
+final class RingElimination {
+	private RingElimination() {
+	}
+
+	/** Returns det(a) (mod m). 'a' is overwritten. */
+	static BigInteger det(BigInteger[][] a, BigInteger m) {
+		int n = a.length;
+		BigInteger det = triangularize(a, n, m) ? m.subtract(BigInteger.ONE) : BigInteger.ONE;
+		for (int i = 0; i < n; i++)
+			det = det.multiply(a[i][i]).mod(m);
+		return det;
+	}
+
+	/**
+	 * Returns a<sup>-1</sup> (mod m), or null if 'a' is not invertible.
+	 */
+	static BigInteger[][] inverse(BigInteger[][] a, BigInteger m) {
+		int n = a.length;
+		// [a | I] -> [T | *] -> [I | a^-1]
+		BigInteger[][] t = new BigInteger[n][2 * n];
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++) {
+				t[i][j] = a[i][j].mod(m);
+				t[i][n + j] = (i == j) ? BigInteger.ONE : BigInteger.ZERO;
+			}
+		triangularize(t, 2 * n, m);
+
+		// det is a unit iff every diagonal entry is, inverted all at once
+		BigInteger[] diag = new BigInteger[n];
+		for (int i = 0; i < n; i++)
+			diag[i] = t[i][i];
+		BigInteger[] inv = BatchInverse.inverse(diag, m);
+		if (inv == null)
+			return null;
+
+		for (int c = n - 1; c >= 0; c--) {
+			for (int j = c; j < 2 * n; j++)
+				t[c][j] = t[c][j].multiply(inv[c]).mod(m);
+			// column c above the pivot 1
+			eliminate(t, c, 0, c, null, 2 * n, m);
+		}
+
+		BigInteger[][] res = new BigInteger[n][n];
+		for (int i = 0; i < n; i++)
+			System.arraycopy(t[i], n, res[i], 0, n);
+		return res;
+	}
+
+	/**
+	 * Makes the first a.length columns of 'a' upper triangular by row
+	 * operations over 'cols' columns, entries in [0, m). Returns true if the
+	 * determinant changed the sign.
+	 */
+	private static boolean triangularize(BigInteger[][] a, int cols, BigInteger m) {
+		int n = a.length;
+		boolean negate = false;
+		for (int c = 0; c < n; c++) {
+			int p = -1;
+			for (int i = c; i < n && p < 0; i++)
+				if (a[i][c].signum() != 0 && BatchInverse.isUnit(a[i][c], m))
+					p = i;
+
+			if (p >= 0) {
+				// unit pivot, as over a field
+				if (p != c) {
+					BigInteger[] t = a[p];
+					a[p] = a[c];
+					a[c] = t;
+					negate = !negate;
+				}
+				eliminate(a, c, c + 1, n, a[c][c].modInverse(m), cols, m);
+				continue;
+			}
+
+			// no unit, gather gcd of the column into the pivot
+			for (int i = c + 1; i < n; i++) {
+				BigInteger b = a[i][c];
+				if (b.signum() == 0)
+					continue;
+				BigInteger x = a[c][c];
+				BigInteger[] gst = xgcd(x, b);
+				BigInteger u = b.divide(gst[0]).negate();
+				BigInteger v = x.divide(gst[0]);
+				for (int j = c; j < cols; j++) {
+					BigInteger rc = a[c][j];
+					BigInteger ri = a[i][j];
+					a[c][j] = gst[1].multiply(rc).add(gst[2].multiply(ri)).mod(m);
+					a[i][j] = u.multiply(rc).add(v.multiply(ri)).mod(m);
+				}
+			}
+		}
+		return negate;
+	}
+
+	/**
+	 * Subtracts f times the row c from the rows [from, to), f = a[i][c] *
+	 * inv, or a[i][c] if inv is null, over the columns [c, cols). The rows
+	 * are independent and go in parallel.
+	 */
+	private static void eliminate(BigInteger[][] a, int c, int from, int to, BigInteger inv, int cols,
+			BigInteger m) {
+		BigInteger[] pivot = a[c];
+		MatrixPool.forRange(to - from, (cols - c) * MatrixPool.mulCost(m.bitLength()), (lo, hi) -> {
+			for (int i = from + lo; i < from + hi; i++) {
+				BigInteger[] row = a[i];
+				if (row[c].signum() == 0)
+					continue;
+				BigInteger f = (inv == null) ? row[c] : row[c].multiply(inv).mod(m);
+				for (int j = c; j < cols; j++)
+					row[j] = row[j].subtract(f.multiply(pivot[j])).mod(m);
+			}
+		});
+	}
+
+	/** Returns {g, s, t} such that sa + tb = g = gcd(a, b) for a, b >= 0. */
+	private static BigInteger[] xgcd(BigInteger a, BigInteger b) {
+		BigInteger r0 = a, r1 = b;
+		BigInteger s0 = BigInteger.ONE, s1 = BigInteger.ZERO;
+		BigInteger t0 = BigInteger.ZERO, t1 = BigInteger.ONE;
+		while (r1.signum() != 0) {
+			BigInteger[] qr = r0.divideAndRemainder(r1);
+			r0 = r1;
+			r1 = qr[1];
+			BigInteger s = s0.subtract(qr[0].multiply(s1));
+			s0 = s1;
+			s1 = s;
+			BigInteger t = t0.subtract(qr[0].multiply(t1));
+			t0 = t1;
+			t1 = t;
+		}
+		BigInteger[] res = { r0, s0, t0 };
+		return res;
+	}
+}
@@ -0,0 +1,539 @@
+package matrix;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Strassen-Winograd multiplication, 7 products and 15 additions of the
+ * quadrants per level instead of 8 products.<BR>
+ * A level halves every dimension, and an odd one is padded with a zero row
+ * or column. The recursion goes down to the classical kernels once a
+ * dimension is below the cutoff, and the 7 products of a level run in
+ * parallel on MatrixPool. The long version stays reduced (mod m) in every
+ * step, the BigInteger one computes in the integers and reduces once.<BR>
+ * The same schedule runs in the exponent (mod a prime p), where a product
+ * is a power and a sum a product: the sums of the exponents are taken mod
+ * p - 1, the differences of the bases are multiplications by inverses, and
+ * the bases are padded with 1. It pays only from EXP_CUTOFF up and is slower
+ * than MultiExp below, so it runs only once enabled by
+ * {@link ModularMatrix#setStrassenExponent(boolean)}.
+ */
+final class Strassen {
+	// measured crossovers to the classical kernels. A BigInteger product
+	// costs more as the modulus grows, while an addition does not.
+	static final int LONG_CUTOFF = 64;
+	private static final int BIG_CUTOFF_BITS = 1 << 15;
+	private static final int MIN_CUTOFF = 16;
+	static final int EXP_CUTOFF = 256;
+
+	private static volatile boolean exponentEnabled;
+
+	private Strassen() {
+	}
+
+	/** Returns true if a product of rows × inner × cols is split. */
+	static boolean pays(int rows, int inner, int cols, int cutoff) {
+		return Math.min(rows, Math.min(inner, cols)) >= cutoff;
+	}
+
+	/** The crossover of the BigInteger products (mod m) of 'bits'. */
+	static int bigCutoff(int bits) {
+		return Math.max(MIN_CUTOFF, BIG_CUTOFF_BITS / Math.max(1, bits));
+	}
+
+	/**
+	 * Returns a * b (mod 'm') of a : n × k and b : k × c, both row-major and
+	 * reduced.
+	 */
+	static long[] multi(long[] a, long[] b, int n, int k, int c, LongModulus m) {
+		if (!pays(n, k, c, LONG_CUTOFF))
+			return LongModularMatrix.classical(a, transpose(b, k, c), n, k, c, m);
+		int n2 = (n + 1) >>> 1;
+		int k2 = (k + 1) >>> 1;
+		int c2 = (c + 1) >>> 1;
+		long[] a11 = block(a, n, k, 0, 0, n2, k2);
+		long[] a12 = block(a, n, k, 0, k2, n2, k2);
+		long[] a21 = block(a, n, k, n2, 0, n2, k2);
+		long[] a22 = block(a, n, k, n2, k2, n2, k2);
+		long[] b11 = block(b, k, c, 0, 0, k2, c2);
+		long[] b12 = block(b, k, c, 0, c2, k2, c2);
+		long[] b21 = block(b, k, c, k2, 0, k2, c2);
+		long[] b22 = block(b, k, c, k2, c2, k2, c2);
+
+		long[] s1 = add(a21, a22, m);
+		long[] s2 = sub(s1, a11, m);
+		long[] s3 = sub(a11, a21, m);
+		long[] s4 = sub(a12, s2, m);
+		long[] t1 = sub(b12, b11, m);
+		long[] t2 = sub(b22, t1, m);
+		long[] t3 = sub(b22, b12, m);
+		long[] t4 = sub(t2, b21, m);
+
+		long[][] l = { a11, a12, s4, a22, s1, s2, s3 };
+		long[][] r = { b11, b21, b22, t4, t1, t2, t3 };
+		long[][] p = new long[7][];
+		MatrixPool.forRange(7, (long) n2 * k2 * c2, (from, to) -> {
+			for (int i = from; i < to; i++)
+				p[i] = multi(l[i], r[i], n2, k2, c2, m);
+		});
+
+		long[] u2 = add(p[0], p[5], m);
+		long[] u3 = add(u2, p[6], m);
+		long[] u4 = add(u2, p[4], m);
+		long[] res = new long[n * c];
+		put(res, n, c, 0, 0, add(p[0], p[1], m), n2, c2);
+		put(res, n, c, 0, c2, add(u4, p[2], m), n2, c2);
+		put(res, n, c, n2, 0, sub(u3, p[3], m), n2, c2);
+		put(res, n, c, n2, c2, add(u3, p[4], m), n2, c2);
+		return res;
+	}
+
+	/** Writes a * b (mod 'mod') of a : n × k and b : k × c into 'res'. */
+	static void multi(BigInteger[][] a, BigInteger[][] b, BigInteger mod, BigInteger[][] res) {
+		int n = a.length;
+		int k = b.length;
+		int c = b[0].length;
+		BigInteger[] p = multi(flat(a), flat(b), n, k, c, mod.bitLength());
+		MatrixPool.forRange(n, c * MatrixPool.mulCost(mod.bitLength()), (from, to) -> {
+			for (int i = from; i < to; i++)
+				for (int j = 0; j < c; j++)
+					res[i][j] = p[i * c + j].mod(mod);
+		});
+	}
+
+	// a * b in the integers
+	private static BigInteger[] multi(BigInteger[] a, BigInteger[] b, int n, int k, int c, int bits) {
+		if (!pays(n, k, c, bigCutoff(bits)))
+			return classical(a, transpose(b, k, c), n, k, c, bits);
+		int n2 = (n + 1) >>> 1;
+		int k2 = (k + 1) >>> 1;
+		int c2 = (c + 1) >>> 1;
+		BigInteger[] a11 = block(a, n, k, 0, 0, n2, k2);
+		BigInteger[] a12 = block(a, n, k, 0, k2, n2, k2);
+		BigInteger[] a21 = block(a, n, k, n2, 0, n2, k2);
+		BigInteger[] a22 = block(a, n, k, n2, k2, n2, k2);
+		BigInteger[] b11 = block(b, k, c, 0, 0, k2, c2);
+		BigInteger[] b12 = block(b, k, c, 0, c2, k2, c2);
+		BigInteger[] b21 = block(b, k, c, k2, 0, k2, c2);
+		BigInteger[] b22 = block(b, k, c, k2, c2, k2, c2);
+
+		BigInteger[] s1 = add(a21, a22);
+		BigInteger[] s2 = sub(s1, a11);
+		BigInteger[] s3 = sub(a11, a21);
+		BigInteger[] s4 = sub(a12, s2);
+		BigInteger[] t1 = sub(b12, b11);
+		BigInteger[] t2 = sub(b22, t1);
+		BigInteger[] t3 = sub(b22, b12);
+		BigInteger[] t4 = sub(t2, b21);
+
+		BigInteger[][] l = { a11, a12, s4, a22, s1, s2, s3 };
+		BigInteger[][] r = { b11, b21, b22, t4, t1, t2, t3 };
+		BigInteger[][] p = new BigInteger[7][];
+		MatrixPool.forRange(7, (long) n2 * k2 * c2 * MatrixPool.mulCost(bits), (from, to) -> {
+			for (int i = from; i < to; i++)
+				p[i] = multi(l[i], r[i], n2, k2, c2, bits);
+		});
+
+		BigInteger[] u2 = add(p[0], p[5]);
+		BigInteger[] u3 = add(u2, p[6]);
+		BigInteger[] u4 = add(u2, p[4]);
+		BigInteger[] res = new BigInteger[n * c];
+		put(res, n, c, 0, 0, add(p[0], p[1]), n2, c2);
+		put(res, n, c, 0, c2, add(u4, p[2]), n2, c2);
+		put(res, n, c, n2, 0, sub(u3, p[3]), n2, c2);
+		put(res, n, c, n2, c2, add(u3, p[4]), n2, c2);
+		return res;
+	}
+
+	/**
+	 * The exponents of an exponent (mod p) split for the recursion. The
+	 * exponents of the 7 products of a level are taken mod p - 1, and only
+	 * the leaves are recoded.
+	 */
+	static final class Plan {
+		final BigInteger order;
+		final boolean reversely;
+		final int rows;
+		final int cols;
+		// the recoded exponents of a leaf, or the plans of the 7 products
+		final ExponentRecoding leaf;
+		final Plan[] sub;
+
+		private Plan(BigInteger order, boolean reversely, int rows, int cols, ExponentRecoding leaf, Plan[] sub) {
+			this.order = order;
+			this.reversely = reversely;
+			this.rows = rows;
+			this.cols = cols;
+			this.leaf = leaf;
+			this.sub = sub;
+		}
+	}
+
+	/**
+	 * Returns the plan of the exponents 'exps' of exponent or, if
+	 * 'reversely', of exponentReversely, whose terms are put side by side.
+	 */
+	static Plan plan(ModularMatrix[] exps, boolean reversely, BigInteger order) {
+		int rows = reversely ? exps[0].rows : 0;
+		int cols = reversely ? 0 : exps[0].cols;
+		for (ModularMatrix e : exps)
+			if (reversely)
+				cols += e.cols;
+			else
+				rows += e.rows;
+		BigInteger[] x = new BigInteger[rows * cols];
+		for (int t = 0, off = 0; t < exps.length; t++) {
+			ModularMatrix e = exps[t];
+			for (int i = 0; i < e.rows; i++)
+				for (int j = 0; j < e.cols; j++)
+					x[reversely ? i * cols + off + j : (off + i) * cols + j] = e.data[i][j].mod(order);
+			off += reversely ? e.cols : e.rows;
+		}
+		return plan(x, rows, cols, reversely, order);
+	}
+
+	private static Plan plan(BigInteger[] x, int rows, int cols, boolean reversely, BigInteger order) {
+		if (Math.min(rows, cols) < EXP_CUTOFF) {
+			ModularMatrix[] e = { matrix(x, rows, cols, order) };
+			return new Plan(order, reversely, rows, cols, new ExponentRecoding(e, reversely), null);
+		}
+		int r2 = (rows + 1) >>> 1;
+		int c2 = (cols + 1) >>> 1;
+		BigInteger[] x11 = block(x, rows, cols, 0, 0, r2, c2);
+		BigInteger[] x12 = block(x, rows, cols, 0, c2, r2, c2);
+		BigInteger[] x21 = block(x, rows, cols, r2, 0, r2, c2);
+		BigInteger[] x22 = block(x, rows, cols, r2, c2, r2, c2);
+		BigInteger[][] ops;
+		if (reversely) {
+			// the exponents are on the left, S of Winograd and -A22 for P4
+			BigInteger[] s1 = add(x21, x22, order);
+			BigInteger[] s2 = sub(s1, x11, order);
+			BigInteger[] s3 = sub(x11, x21, order);
+			BigInteger[] s4 = sub(x12, s2, order);
+			BigInteger[] n22 = neg(x22, order);
+			ops = new BigInteger[][] { x11, x12, s4, n22, s1, s2, s3 };
+		} else {
+			// the exponents are on the right, T of Winograd and -T4 for P4
+			BigInteger[] t1 = sub(x12, x11, order);
+			BigInteger[] t2 = sub(x22, t1, order);
+			BigInteger[] t3 = sub(x22, x12, order);
+			BigInteger[] n4 = sub(x21, t2, order);
+			ops = new BigInteger[][] { x11, x21, x22, n4, t1, t2, t3 };
+		}
+		Plan[] sub = new Plan[7];
+		MatrixPool.forRange(7, (long) r2 * c2 * order.bitLength(), (from, to) -> {
+			for (int i = from; i < to; i++)
+				sub[i] = plan(ops[i], r2, c2, reversely, order);
+		});
+		return new Plan(order, reversely, rows, cols, null, sub);
+	}
+
+	static boolean isExponentEnabled() {
+		return exponentEnabled;
+	}
+
+	static void setExponentEnabled(boolean enabled) {
+		exponentEnabled = enabled;
+	}
+
+	/**
+	 * Returns M<sub>s</sub> = exponent(bases[s][0], exps[0]) or, if
+	 * 'reversely', exponentReversely(bases[s], exps) (mod 'mod') by the
+	 * recursion, or null if it is not enabled or does not pay: the dimensions
+	 * are below the cutoff, 'mod' is not a prime or a base is not invertible.
+	 * 'r' holds the plan of the exponents if not null.
+	 */
+	static ModularMatrix[] exponent(ModularMatrix[][] bases, ModularMatrix[] exps, boolean reversely,
+			ExponentRecoding r, BigInteger mod) {
+		if (!exponentEnabled)
+			return null;
+		int inner = 0;
+		for (int t = 0; t < exps.length; t++) {
+			inner += reversely ? exps[t].cols : exps[t].rows;
+			if (reversely ? exps[t].rows != exps[0].rows : exps[t].cols != exps[0].cols)
+				return null;
+			for (ModularMatrix[] b : bases)
+				if (b.length != exps.length || (reversely ? b[t].rows != exps[t].cols || b[t].cols != b[0].cols
+						: b[t].cols != exps[t].rows || b[t].rows != b[0].rows))
+					return null;
+		}
+		int outer = reversely ? bases[0][0].cols : bases[0][0].rows;
+		int rows = reversely ? exps[0].rows : outer;
+		int cols = reversely ? outer : exps[0].cols;
+		if (!pays(rows, inner, cols, EXP_CUTOFF) || !mod.isProbablePrime(ModularExpression.PRIME_CERTAINTY))
+			return null;
+
+		BigInteger[][] g = new BigInteger[bases.length][];
+		for (int s = 0; s < bases.length; s++)
+			g[s] = stack(bases[s], reversely, mod);
+		BigInteger[][] gi = BatchInverse.inverse(g, mod);
+		if (gi == null)
+			return null;
+
+		BigInteger order = mod.subtract(BigInteger.ONE);
+		Plan plan = r != null ? r.plan(order) : plan(exps, reversely, order);
+		BigInteger[][] res = exponent(g, gi, outer, plan, mod);
+		ModularMatrix[] m = new ModularMatrix[res.length];
+		for (int s = 0; s < res.length; s++)
+			m[s] = matrix(res[s], rows, cols, mod);
+		return m;
+	}
+
+	/**
+	 * The bases 'g' with their inverses 'gi' raised to the exponents of 'x'.
+	 * The bases are outer × x.rows or, if reversely, x.cols × outer.
+	 */
+	private static BigInteger[][] exponent(BigInteger[][] g, BigInteger[][] gi, int outer, Plan x, BigInteger p) {
+		boolean rev = x.reversely;
+		int rows = rev ? x.cols : outer;
+		int cols = rev ? outer : x.rows;
+		if (x.leaf != null) {
+			ModularMatrix[][] b = new ModularMatrix[g.length][1];
+			for (int s = 0; s < g.length; s++)
+				b[s][0] = matrix(g[s], rows, cols, p);
+			ModularMatrix[] m = ModularMatrix.exponentClassical(b, x.leaf, p);
+			BigInteger[][] res = new BigInteger[g.length][];
+			for (int s = 0; s < g.length; s++)
+				res[s] = flat(m[s].data);
+			return res;
+		}
+
+		int h = (rows + 1) >>> 1;
+		int w = (cols + 1) >>> 1;
+		BigInteger[][] a11 = block(g, rows, cols, 0, 0, h, w);
+		BigInteger[][] a12 = block(g, rows, cols, 0, w, h, w);
+		BigInteger[][] a21 = block(g, rows, cols, h, 0, h, w);
+		BigInteger[][] a22 = block(g, rows, cols, h, w, h, w);
+		BigInteger[][] a11i = block(gi, rows, cols, 0, 0, h, w);
+		BigInteger[][] a12i = block(gi, rows, cols, 0, w, h, w);
+		BigInteger[][] a21i = block(gi, rows, cols, h, 0, h, w);
+		BigInteger[][] a22i = block(gi, rows, cols, h, w, h, w);
+
+		// the differences of Winograd, u - v = u * v^-1 and its inverse
+		// u^-1 * v, with the bases on the right (T) or on the left (S)
+		BigInteger[][][] ops;
+		BigInteger[][][] inv;
+		if (rev) {
+			BigInteger[][] t1 = mul(a12, a11i, p);
+			BigInteger[][] t1i = mul(a12i, a11, p);
+			BigInteger[][] t2 = mul(a22, t1i, p);
+			BigInteger[][] t2i = mul(a22i, t1, p);
+			BigInteger[][] t3 = mul(a22, a12i, p);
+			BigInteger[][] t3i = mul(a22i, a12, p);
+			BigInteger[][] t4 = mul(t2, a21i, p);
+			BigInteger[][] t4i = mul(t2i, a21, p);
+			ops = new BigInteger[][][] { a11, a21, a22, t4, t1, t2, t3 };
+			inv = new BigInteger[][][] { a11i, a21i, a22i, t4i, t1i, t2i, t3i };
+		} else {
+			BigInteger[][] s1 = mul(a21, a22, p);
+			BigInteger[][] s1i = mul(a21i, a22i, p);
+			BigInteger[][] s2 = mul(s1, a11i, p);
+			BigInteger[][] s2i = mul(s1i, a11, p);
+			BigInteger[][] s3 = mul(a11, a21i, p);
+			BigInteger[][] s3i = mul(a11i, a21, p);
+			BigInteger[][] s4 = mul(a12, s2i, p);
+			BigInteger[][] s4i = mul(a12i, s2, p);
+			ops = new BigInteger[][][] { a11, a12, s4, a22, s1, s2, s3 };
+			inv = new BigInteger[][][] { a11i, a12i, s4i, a22i, s1i, s2i, s3i };
+		}
+
+		// P4 comes inverted, its exponents are negated in the plan
+		int o2 = rev ? w : h;
+		BigInteger[][][] q = new BigInteger[7][][];
+		MatrixPool.forRange(7, (long) h * w * o2 * MatrixPool.powCost(x.order.bitLength(), p.bitLength()),
+				(from, to) -> {
+					for (int i = from; i < to; i++)
+						q[i] = exponent(ops[i], inv[i], o2, x.sub[i], p);
+				});
+
+		BigInteger[][] u2 = mul(q[0], q[5], p);
+		BigInteger[][] u3 = mul(u2, q[6], p);
+		BigInteger[][] u4 = mul(u2, q[4], p);
+		int n = rev ? x.rows : outer;
+		int c = rev ? outer : x.cols;
+		int n2 = rev ? x.sub[0].rows : h;
+		int c2 = rev ? w : x.sub[0].cols;
+		BigInteger[][] res = new BigInteger[g.length][n * c];
+		put(res, n, c, 0, 0, mul(q[0], q[1], p), n2, c2);
+		put(res, n, c, 0, c2, mul(u4, q[2], p), n2, c2);
+		put(res, n, c, n2, 0, mul(u3, q[3], p), n2, c2);
+		put(res, n, c, n2, c2, mul(u3, q[4], p), n2, c2);
+		return res;
+	}
+
+	// the bases of the terms one under the other (reversely) or side by side,
+	// reduced (mod p)
+	private static BigInteger[] stack(ModularMatrix[] b, boolean reversely, BigInteger p) {
+		int rows = reversely ? 0 : b[0].rows;
+		int cols = reversely ? b[0].cols : 0;
+		for (ModularMatrix m : b)
+			if (reversely)
+				rows += m.rows;
+			else
+				cols += m.cols;
+		BigInteger[] res = new BigInteger[rows * cols];
+		for (int t = 0, off = 0; t < b.length; t++) {
+			ModularMatrix m = b[t];
+			for (int i = 0; i < m.rows; i++)
+				for (int j = 0; j < m.cols; j++) {
+					BigInteger v = m.data[i][j];
+					if (v.compareTo(p) >= 0)
+						v = v.mod(p);
+					res[reversely ? (off + i) * cols + j : i * cols + off + j] = v;
+				}
+			off += reversely ? m.rows : m.cols;
+		}
+		return res;
+	}
+
+	private static BigInteger[][] block(BigInteger[][] src, int rows, int cols, int r0, int c0, int h, int w) {
+		BigInteger[][] res = new BigInteger[src.length][];
+		for (int s = 0; s < src.length; s++) {
+			res[s] = new BigInteger[h * w];
+			Arrays.fill(res[s], BigInteger.ONE);
+			for (int i = 0; i < h && r0 + i < rows; i++)
+				System.arraycopy(src[s], (r0 + i) * cols + c0, res[s], i * w, Math.min(w, cols - c0));
+		}
+		return res;
+	}
+
+	private static void put(BigInteger[][] dst, int rows, int cols, int r0, int c0, BigInteger[][] blk, int h, int w) {
+		for (int s = 0; s < dst.length; s++)
+			put(dst[s], rows, cols, r0, c0, blk[s], h, w);
+	}
+
+	private static BigInteger[][] mul(BigInteger[][] a, BigInteger[][] b, BigInteger p) {
+		BigInteger[][] res = new BigInteger[a.length][];
+		for (int s = 0; s < a.length; s++) {
+			res[s] = new BigInteger[a[s].length];
+			for (int e = 0; e < res[s].length; e++)
+				res[s][e] = a[s][e].multiply(b[s][e]).mod(p);
+		}
+		return res;
+	}
+
+	private static BigInteger[] add(BigInteger[] a, BigInteger[] b, BigInteger m) {
+		BigInteger[] res = new BigInteger[a.length];
+		for (int e = 0; e < res.length; e++) {
+			BigInteger v = a[e].add(b[e]);
+			res[e] = v.compareTo(m) >= 0 ? v.subtract(m) : v;
+		}
+		return res;
+	}
+
+	private static BigInteger[] sub(BigInteger[] a, BigInteger[] b, BigInteger m) {
+		BigInteger[] res = new BigInteger[a.length];
+		for (int e = 0; e < res.length; e++) {
+			BigInteger v = a[e].subtract(b[e]);
+			res[e] = v.signum() < 0 ? v.add(m) : v;
+		}
+		return res;
+	}
+
+	private static BigInteger[] neg(BigInteger[] a, BigInteger m) {
+		BigInteger[] res = new BigInteger[a.length];
+		for (int e = 0; e < res.length; e++)
+			res[e] = a[e].signum() == 0 ? a[e] : m.subtract(a[e]);
+		return res;
+	}
+
+	private static ModularMatrix matrix(BigInteger[] a, int rows, int cols, BigInteger mod) {
+		BigInteger[][] res = new BigInteger[rows][cols];
+		for (int i = 0; i < rows; i++)
+			System.arraycopy(a, i * cols, res[i], 0, cols);
+		return ModularMatrix.ofReduced(res, mod);
+	}
+
+	private static BigInteger[] classical(BigInteger[] a, BigInteger[] bt, int n, int k, int c, int bits) {
+		BigInteger[] res = new BigInteger[n * c];
+		MatrixPool.forRange(n, (long) k * c * MatrixPool.mulCost(bits), (from, to) -> {
+			for (int i = from; i < to; i++)
+				for (int j = 0; j < c; j++) {
+					BigInteger v = BigInteger.ZERO;
+					for (int t = 0, x = i * k, y = j * k; t < k; t++, x++, y++)
+						v = v.add(a[x].multiply(bt[y]));
+					res[i * c + j] = v;
+				}
+		});
+		return res;
+	}
+
+	// the h × w block at (r0, c0) of the rows × cols 'src', 0 outside of it
+	private static long[] block(long[] src, int rows, int cols, int r0, int c0, int h, int w) {
+		long[] res = new long[h * w];
+		for (int i = 0; i < h && r0 + i < rows; i++)
+			System.arraycopy(src, (r0 + i) * cols + c0, res, i * w, Math.min(w, cols - c0));
+		return res;
+	}
+
+	private static BigInteger[] block(BigInteger[] src, int rows, int cols, int r0, int c0, int h, int w) {
+		BigInteger[] res = new BigInteger[h * w];
+		for (int i = 0; i < h; i++)
+			for (int j = 0; j < w; j++)
+				res[i * w + j] = (r0 + i < rows && c0 + j < cols) ? src[(r0 + i) * cols + c0 + j] : BigInteger.ZERO;
+		return res;
+	}
+
+	// stores the part of the h × w 'blk' inside of the rows × cols 'dst'
+	private static void put(long[] dst, int rows, int cols, int r0, int c0, long[] blk, int h, int w) {
+		for (int i = 0; i < h && r0 + i < rows; i++)
+			System.arraycopy(blk, i * w, dst, (r0 + i) * cols + c0, Math.min(w, cols - c0));
+	}
+
+	private static void put(BigInteger[] dst, int rows, int cols, int r0, int c0, BigInteger[] blk, int h, int w) {
+		for (int i = 0; i < h && r0 + i < rows; i++)
+			System.arraycopy(blk, i * w, dst, (r0 + i) * cols + c0, Math.min(w, cols - c0));
+	}
+
+	private static long[] add(long[] a, long[] b, LongModulus m) {
+		long[] res = new long[a.length];
+		for (int e = 0; e < res.length; e++)
+			res[e] = m.add(a[e], b[e]);
+		return res;
+	}
+
+	private static long[] sub(long[] a, long[] b, LongModulus m) {
+		long[] res = new long[a.length];
+		for (int e = 0; e < res.length; e++)
+			res[e] = m.sub(a[e], b[e]);
+		return res;
+	}
+
+	private static BigInteger[] add(BigInteger[] a, BigInteger[] b) {
+		BigInteger[] res = new BigInteger[a.length];
+		for (int e = 0; e < res.length; e++)
+			res[e] = a[e].add(b[e]);
+		return res;
+	}
+
+	private static BigInteger[] sub(BigInteger[] a, BigInteger[] b) {
+		BigInteger[] res = new BigInteger[a.length];
+		for (int e = 0; e < res.length; e++)
+			res[e] = a[e].subtract(b[e]);
+		return res;
+	}
+
+	private static long[] transpose(long[] b, int rows, int cols) {
+		long[] res = new long[b.length];
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				res[j * rows + i] = b[i * cols + j];
+		return res;
+	}
+
+	private static BigInteger[] transpose(BigInteger[] b, int rows, int cols) {
+		BigInteger[] res = new BigInteger[b.length];
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+				res[j * rows + i] = b[i * cols + j];
+		return res;
+	}
+
+	private static BigInteger[] flat(BigInteger[][] a) {
+		int c = a[0].length;
+		BigInteger[] res = new BigInteger[a.length * c];
+		for (int i = 0; i < a.length; i++)
+			System.arraycopy(a[i], 0, res, i * c, c);
+		return res;
+	}
+}
@@ -0,0 +1,59 @@
+package matrix;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * The Strassen-Winograd recursion in the exponent against
+ * exponentClassical at the cutoff Strassen.EXP_CUTOFF and one above it,
+ * whose odd dimensions are padded. The bases are units (mod a prime p) and
+ * the exponents are taken mod p - 1.
+ */
+public class StrassenTest {
+	public static void main(String[] args) {
+		int suc = 0;
+		int num = 2;
+
+		Random random = new Random();
+		boolean enabled = ModularMatrix.isStrassenExponent();
+		try {
+			for (int i = 0; i < num; i++) {
+				BigInteger p = BigInteger.probablePrime(31, random);
+				boolean ok = true;
+				for (int d : new int[] { Strassen.EXP_CUTOFF, Strassen.EXP_CUTOFF + 1 })
+					ok &= check(random, p, d, false) && check(random, p, d, true);
+				if (ok)
+					suc++;
+			}
+		} finally {
+			ModularMatrix.setStrassenExponent(enabled);
+		}
+		System.out.println(suc + "/" + num);
+	}
+
+	// entries 1 <= x < m
+	static ModularMatrix random(Random random, int d, BigInteger m) {
+		BigInteger[][] a = new BigInteger[d][d];
+		for (int i = 0; i < d; i++)
+			for (int j = 0; j < d; j++)
+				a[i][j] = new BigInteger(m.bitLength() + 8, random).mod(m.subtract(BigInteger.ONE)).add(BigInteger.ONE);
+		return new ModularMatrix(a, m);
+	}
+
+	static boolean check(Random random, BigInteger p, int d, boolean reversely) {
+		ModularMatrix[][] b = { { random(random, d, p) } };
+		ModularMatrix[] x = { random(random, d, p.subtract(BigInteger.ONE)) };
+		ExponentRecoding r = new ExponentRecoding(x, reversely);
+
+		ModularMatrix.setStrassenExponent(false);
+		if (Strassen.exponent(b, x, reversely, r, p) != null)
+			return false;
+		ModularMatrix.setStrassenExponent(true);
+		ModularMatrix[] s = Strassen.exponent(b, x, reversely, r, p);
+		if (s == null || !s[0].equals(ModularMatrix.exponentClassical(b, r, p)[0]))
+			return false;
+		// and by the public kernels
+		ModularMatrix e = reversely ? ModularMatrix.exponentReversely(b[0], r, p) : b[0][0].exponent(r, p);
+		return e.equals(s[0]);
+	}
+}
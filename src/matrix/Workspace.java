@@ -0,0 +1,68 @@
+package matrix;
+
+/**
+ * Scratch arrays of the kernels, kept per thread and reused by the next
+ * call, so that a kernel in a steady loop allocates no tables.<BR>
+ * A kernel acquires the workspace of its thread and releases it when done.
+ * A kernel that runs while the workspace is held, a block of another kernel
+ * run by a joining worker, gets a fresh one. An array handed out keeps the
+ * garbage of its last use, and grows to the largest size asked.
+ */
+final class Workspace {
+	// slots of the arrays
+	static final int TABLE = 0;
+	static final int BUCKET = 1;
+	static final int ACC = 2;
+	static final int SCRATCH = 3;
+	static final int LEFT = 4;
+	static final int RIGHT = 5;
+	static final int RESULT = 6;
+	private static final int SLOTS = 7;
+
+	private static final ThreadLocal<Workspace> LOCAL = ThreadLocal.withInitial(Workspace::new);
+
+	private final int[][] ints = new int[SLOTS][];
+	private final long[][] longs = new long[SLOTS][];
+	private byte[] bytes;
+	private boolean busy;
+
+	private Workspace() {
+	}
+
+	/** Returns the workspace of this thread, or a fresh one if it is held. */
+	static Workspace acquire() {
+		Workspace w = LOCAL.get();
+		if (w.busy)
+			w = new Workspace();
+		w.busy = true;
+		return w;
+	}
+
+	void release() {
+		busy = false;
+	}
+
+	/** Returns an int array of at least 'size' in 'slot'. */
+	int[] ints(int slot, int size) {
+		int[] a = ints[slot];
+		if (a == null || a.length < size)
+			ints[slot] = a = new int[size];
+		return a;
+	}
+
+	/** Returns a byte array of at least 'size'. */
+	byte[] bytes(int size) {
+		byte[] a = bytes;
+		if (a == null || a.length < size)
+			bytes = a = new byte[size];
+		return a;
+	}
+
+	/** Returns a long array of at least 'size' in 'slot'. */
+	long[] longs(int slot, int size) {
+		long[] a = longs[slot];
+		if (a == null || a.length < size)
+			longs[slot] = a = new long[size];
+		return a;
+	}
+}
@@ -2,12 +2,13 @@ package matrix.generator;
 
 import java.math.BigInteger;
 import java.util.Random;
-import java.util.Vector;
+import java.util.function.BiFunction;
 
 import matrix.generator.rule.CreateRule;
 import matrix.generator.rule.InvertibleLTM;
 import matrix.generator.rule.InvertibleUTM;
 import matrix.generator.rule.NoRules;
+import matrix.MatrixPool;
 import matrix.ModularMatrix;
 
 /** Modular Matrix Generator */
@@ -70,46 +71,36 @@ public class ModMatGen {
 
 		ModularMatrix l = createMatrix(new InvertibleLTM(random, modulus), dim, modulus);
 		ModularMatrix u = createMatrix(new InvertibleUTM(random, modulus), dim, modulus);
-
-		// generate LTM inverse
-		ModularMatrix li = generateLTMInv(l, modulus);
-
-		// generate UTM inverse
-		ModularMatrix ui = generateLTMInv(u.transpose(), modulus).transpose();
-
-		ModularMatrix[] res = { l.multi(u), ui.multi(li) };
-		return res;
+		return invertiblePair(l, u);
 	}
 
-	private static ModularMatrix generateLTMInv(ModularMatrix ltm, BigInteger mod) {
-		int dim = ltm.getRowSize();
-		BigInteger[][] linv = new BigInteger[dim][dim];
-
-		// set 1st row
-		for (int j = 0; j < dim; j++) {
-			if (0 == j)
-				linv[0][j] = BigInteger.ONE;
-			else
-				linv[0][j] = BigInteger.ZERO;
-		}
+	/**
+	 * Create an invertible ModularMatrix and it's inverse ModularMatrix as
+	 * makeInvertibleMatrix(Random, int, BigInteger), the triangular factors
+	 * from drbg.fork(0) and drbg.fork(1) by createMatrix(BiFunction,
+	 * SplittableDRBG, int, BigInteger).
+	 *
+	 * @throws IllegalArgumentException
+	 *             modulus < 2
+	 */
+	public static ModularMatrix[] makeInvertibleMatrix(SplittableDRBG drbg, int dim, BigInteger modulus) {
+		if (modulus.compareTo(new BigInteger("2")) < 0)
+			throw new IllegalArgumentException("mod must be gleater or equalsto 2.");
 
-		for (int i = 0; i < dim; i++)
-			for (int j = 0; j < dim; j++) {
-				// divide ith row of L' by L[i,i]
-				linv[i][j] = linv[i][j].multiply(ltm.get(i, i).modInverse(mod));
+		ModularMatrix l = createMatrix(InvertibleLTM::new, drbg.fork(0), dim, modulus);
+		ModularMatrix u = createMatrix(InvertibleUTM::new, drbg.fork(1), dim, modulus);
+		return invertiblePair(l, u);
+	}
 
-				if (i < dim - 1) {
-					if (i + 1 == j)
-						linv[i + 1][j] = BigInteger.ONE;
-					else
-						linv[i + 1][j] = BigInteger.ZERO;
+	// L * U and its inverse U^-1 * L^-1
+	private static ModularMatrix[] invertiblePair(ModularMatrix l, ModularMatrix u) {
+		// the triangular inverses by substitution, each diagonal inverted by
+		// one batch inversion
+		ModularMatrix li = l.inverse();
+		ModularMatrix ui = u.inverse();
 
-					for (int k = j; k < i + 1; k++)
-						// L'[i+1,j] = L'[i+1,j] - L[i+1,k] * L'[k,j]
-						linv[i + 1][j] = linv[i + 1][j].subtract(ltm.get(i + 1, k).multiply(linv[k][j]));
-				}
-			}
-		return new ModularMatrix(linv, mod);
+		ModularMatrix[] res = { l.multi(u), ui.multi(li) };
+		return res;
 	}
 
 	/**
@@ -130,75 +121,142 @@ public class ModMatGen {
 		if (dim < 2)
 			throw new IllegalArgumentException("'d' must be larger than 2.");
 
+		UniformSampler sampler = new UniformSampler(random, modulus);
 		BigInteger[][] data = new BigInteger[dim][dim];
 		for (int i = 0; i < dim; i++)
-			for (int j = 0; j < dim; j++)
-				if (i == j)
-					data[i][j] = BigInteger.ZERO;
-				else
-					data[i][j] = ModMatGen.randomBInt(random, modulus);
+			notInvertibleRow(sampler, data[i], i);
 
 		return new ModularMatrix(data, modulus);
 	}
 
-	/* create a matrix accordance with given "create rule" */
-	public static ModularMatrix createMatrix(CreateRule<BigInteger> cr, int dim, BigInteger mod) {
-		BigInteger[][] res = new BigInteger[dim][dim];
-
-		for (int i = 0; i < dim; i++)
-			for (int j = 0; j < dim; j++)
-				res[i][j] = cr.createValue(i, j);
-
-		return new ModularMatrix(res, mod);
+	/**
+	 * Create an not invertible ModularMatrix as makeNotInvertibleMatrix(Random,
+	 * int, BigInteger), the row i from drbg.fork(i), the rows in parallel on
+	 * MatrixPool.
+	 *
+	 * @throws IllegalArgumentException
+	 *             modulus < 2
+	 */
+	public static ModularMatrix makeNotInvertibleMatrix(SplittableDRBG drbg, int dim, BigInteger modulus) {
+		SplittableDRBG[] gens = { drbg };
+		return makeNotInvertibleMatrices(gens, dim, modulus)[0];
 	}
 
 	/**
-	 * Randomly return a positive BigInteger less than argument.
+	 * Create 'count' not invertible ModularMatrix, the matrix t as
+	 * makeNotInvertibleMatrix(drbg.fork(t), dim, modulus), the rows of all in
+	 * parallel on MatrixPool.
 	 *
-	 * @param random
-	 *            The method to choose integer randomly.
 	 * @throws IllegalArgumentException
 	 *             modulus < 2
-	 **/
-	public static BigInteger randomBInt(Random random, BigInteger modulus) {
+	 */
+	public static ModularMatrix[] makeNotInvertibleMatrices(SplittableDRBG drbg, int count, int dim,
+			BigInteger modulus) {
+		return makeNotInvertibleMatrices(forks(drbg, count), dim, modulus);
+	}
+
+	private static ModularMatrix[] makeNotInvertibleMatrices(SplittableDRBG[] gens, int dim, BigInteger modulus) {
 		if (modulus.compareTo(new BigInteger("2")) < 0)
 			throw new IllegalArgumentException("mod must be gleater or equalsto 2.");
+		if (dim < 2)
+			throw new IllegalArgumentException("'d' must be larger than 2.");
 
-		BigInteger res;
-		BigInteger MAX = new BigInteger(Integer.toString(Integer.MAX_VALUE));
+		return byRows(gens, dim, modulus,
+				(random, row, i) -> notInvertibleRow(new UniformSampler(random, modulus), row, i));
+	}
 
-		if (modulus.compareTo(MAX) > 0) {
-			BigInteger m = modulus;
-			Vector<Integer> v = new Vector<Integer>();
+	// random entries but 0 on the diagonal
+	private static void notInvertibleRow(UniformSampler sampler, BigInteger[] row, int i) {
+		sampler.fill(row, 0, i);
+		row[i] = BigInteger.ZERO;
+		sampler.fill(row, i + 1, row.length);
+	}
 
-			// Split biginteger into size of integer.
-			while (!m.equals(BigInteger.ZERO)) {
-				v.add(random.nextInt(m.mod(MAX).intValue()));
-				m = m.divide(MAX);
-			}
+	/* create a matrix accordance with given "create rule", row by row */
+	public static ModularMatrix createMatrix(CreateRule<BigInteger> cr, int dim, BigInteger mod) {
+		BigInteger[][] res = new BigInteger[dim][dim];
+		cr.fill(res);
 
-			res = BigInteger.ZERO;
-			int cnt = 0;
+		return new ModularMatrix(res, mod);
+	}
 
-			// Assembling the cut value again
-			for (Integer b : v) {
-				res = res.add(new BigInteger(b.toString()).multiply(MAX.pow(cnt)));
-				cnt++;
-			}
+	/**
+	 * Create a matrix by the rule made by 'rule' of the modulus and a Random,
+	 * as NoRules::new. The row i is made by a rule of drbg.fork(i), so the
+	 * rows run in parallel on MatrixPool and the matrix is the same on any
+	 * number of threads.
+	 */
+	public static ModularMatrix createMatrix(BiFunction<Random, BigInteger, CreateRule<BigInteger>> rule,
+			SplittableDRBG drbg, int dim, BigInteger mod) {
+		SplittableDRBG[] gens = { drbg };
+		return createMatrices(rule, gens, dim, mod)[0];
+	}
 
-			return res;
-		} else if (modulus.compareTo(BigInteger.ZERO) > 0) {
-			// In case of mod < IntMAX
-			do
-				res = new BigInteger(Integer.toString(random.nextInt(modulus.intValue())));
-			while (res.equals(BigInteger.ZERO));
-			return res;
-		} else
-			throw new IllegalArgumentException("'mod' must be greater than 0.");
+	/**
+	 * Create 'count' matrices, the matrix t as createMatrix(rule,
+	 * drbg.fork(t), dim, mod), the rows of all in parallel on MatrixPool.
+	 */
+	public static ModularMatrix[] createMatrices(BiFunction<Random, BigInteger, CreateRule<BigInteger>> rule,
+			SplittableDRBG drbg, int count, int dim, BigInteger mod) {
+		return createMatrices(rule, forks(drbg, count), dim, mod);
+	}
+
+	private static ModularMatrix[] createMatrices(BiFunction<Random, BigInteger, CreateRule<BigInteger>> rule,
+			SplittableDRBG[] gens, int dim, BigInteger mod) {
+		return byRows(gens, dim, mod, (random, row, i) -> rule.apply(random, mod).fillRow(i, row));
+	}
+
+	/** A row 'i' made from 'random'. */
+	private interface RowRule {
+		void fill(Random random, BigInteger[] row, int i);
+	}
+
+	private static SplittableDRBG[] forks(SplittableDRBG drbg, int count) {
+		SplittableDRBG[] res = new SplittableDRBG[count];
+		for (int t = 0; t < count; t++)
+			res[t] = drbg.fork(t);
+		return res;
+	}
+
+	// dim × dim matrices, the row i of the matrix t by 'rule' from
+	// gens[t].fork(i), all the rows in parallel
+	private static ModularMatrix[] byRows(SplittableDRBG[] gens, int dim, BigInteger mod, RowRule rule) {
+		BigInteger[][][] data = new BigInteger[gens.length][dim][dim];
+		MatrixPool.forRange(gens.length * dim, dim * sampleCost(mod), (from, to) -> {
+			for (int r = from; r < to; r++)
+				rule.fill(gens[r / dim].fork(r % dim), data[r / dim][r % dim], r % dim);
+		});
+		ModularMatrix[] res = new ModularMatrix[gens.length];
+		for (int t = 0; t < gens.length; t++)
+			res[t] = new ModularMatrix(data[t], mod);
+		return res;
+	}
+
+	// work of a random value (mod m), about 1 hash of 32 bytes per 128
+	// word multiplications
+	private static long sampleCost(BigInteger mod) {
+		return 128L * ((mod.bitLength() + 63) / 64) + 64;
+	}
+
+	/**
+	 * Randomly return a positive BigInteger less than argument.<BR>
+	 * The value is uniform, by UniformSampler; a sampler made once draws many
+	 * values from fewer calls of the Random.
+	 *
+	 * @param random
+	 *            The method to choose integer randomly.
+	 * @throws IllegalArgumentException
+	 *             modulus < 2
+	 **/
+	public static BigInteger randomBInt(Random random, BigInteger modulus) {
+		return new UniformSampler(random, modulus).next();
 	}
 
 	/**
-	 * Randomly return a positive BigInteger less than argument.
+	 * Randomly return a positive BigInteger less than argument and
+	 * invertible (mod modulus).<BR>
+	 * The inverse of a random unit is a random unit, so a unit is tested by
+	 * gcd and returned as it is, without inversion.
 	 *
 	 * @param random
 	 *            The method to choose integer randomly.
@@ -206,15 +264,7 @@ public class ModMatGen {
 	 *             modulus < 2
 	 **/
 	public static BigInteger randomInvBInt(Random random, BigInteger modulus) {
-		if (modulus.compareTo(new BigInteger("2")) < 0)
-			throw new IllegalArgumentException("mod must be gleater or equalsto 2.");
-		while (true) {
-			try {
-				return ModMatGen.randomBInt(random, modulus).modInverse(modulus);
-			} catch (ArithmeticException e) {
-				// not invertible. try again.
-			}
-		}
+		return new UniformSampler(random, modulus).nextUnit();
 	}
 
 	private long extGCD(long a, long b, int x, int y) {
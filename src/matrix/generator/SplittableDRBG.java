@@ -0,0 +1,150 @@
+package matrix.generator;
+
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+/**
+ * A deterministic random bit generator, SHA-256 in counter mode, that forks
+ * independent streams.<BR>
+ * The stream of a key k is the blocks SHA-256(0 || k || counter), and
+ * fork(n) is the generator of the key SHA-256(1 || k || n). A fork depends
+ * only on the key and n, not on what was drawn before, so tasks forked by
+ * their index (the rows of a matrix, the matrices of a key) draw the same
+ * values in any order and on any number of threads. The same seed gives the
+ * same values; a seed from a SecureRandom gives a new generator.<BR>
+ * A generator is not thread safe, a task uses its own fork. It is not
+ * serializable either, its key would be written out.
+ */
+@SuppressWarnings("serial")
+public final class SplittableDRBG extends Random {
+	private static final int SEED_LENGTH = 32;
+	// a digest to clone, cheaper than getInstance for every fork
+	private static final MessageDigest SHA256 = sha256();
+	private final transient byte[] key;
+	// 0 || key || counter, the input of the next block
+	private final transient byte[] input = new byte[1 + SEED_LENGTH + 8];
+	private transient long counter;
+	private final transient byte[] block = new byte[SEED_LENGTH];
+	private transient int pos = SEED_LENGTH;
+	private transient MessageDigest sha;
+
+	/** A generator of the seed, of any length. */
+	public SplittableDRBG(byte[] seed) {
+		this((byte) 2, seed, 0);
+	}
+
+	/** A generator of a seed of 256 bits from 'random'. */
+	public SplittableDRBG(Random random) {
+		this((byte) 2, seed(random), 0);
+	}
+
+	// the generator of the key SHA-256(tag || data || n)
+	private SplittableDRBG(byte tag, byte[] data, long n) {
+		key = hash(tag, data, n);
+		System.arraycopy(key, 0, input, 1, SEED_LENGTH);
+	}
+
+	private static byte[] seed(Random random) {
+		byte[] seed = new byte[SEED_LENGTH];
+		random.nextBytes(seed);
+		return seed;
+	}
+
+	/** Returns the stream 'n' of this generator, the same for the same n. */
+	public SplittableDRBG fork(long n) {
+		return new SplittableDRBG((byte) 1, key, n);
+	}
+
+	/**
+	 * Not supported, the values depend only on the seed.
+	 *
+	 * @throws UnsupportedOperationException
+	 *             always, after construction
+	 */
+	@Override
+	public void setSeed(long seed) {
+		// called by the constructor of Random before the key is set
+		if (key != null)
+			throw new UnsupportedOperationException("the seed of a DRBG is fixed.");
+	}
+
+	@Override
+	public void nextBytes(byte[] bytes) {
+		int off = 0;
+		while (off < bytes.length) {
+			if (pos == SEED_LENGTH)
+				refill();
+			int n = Math.min(SEED_LENGTH - pos, bytes.length - off);
+			System.arraycopy(block, pos, bytes, off, n);
+			pos += n;
+			off += n;
+		}
+	}
+
+	@Override
+	protected int next(int bits) {
+		int res = 0;
+		for (int k = 0; k < 4; k++) {
+			if (pos == SEED_LENGTH)
+				refill();
+			res = res << 8 | (block[pos++] & 0xff);
+		}
+		return res >>> (32 - bits);
+	}
+
+	private void refill() {
+		MessageDigest md = sha;
+		if (md == null)
+			sha = md = digest();
+		long n = counter++;
+		for (int k = 0; k < 8; k++)
+			input[input.length - 1 - k] = (byte) (n >>> (8 * k));
+		md.update(input);
+		try {
+			md.digest(block, 0, SEED_LENGTH);
+		} catch (DigestException e) {
+			throw new IllegalStateException(e);
+		}
+		pos = 0;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws NotSerializableException {
+		throw new NotSerializableException(SplittableDRBG.class.getName());
+	}
+
+	private void readObject(ObjectInputStream in) throws NotSerializableException {
+		throw new NotSerializableException(SplittableDRBG.class.getName());
+	}
+
+	// SHA-256(tag || data || n)
+	private static byte[] hash(byte tag, byte[] data, long n) {
+		MessageDigest md = digest();
+		md.update(tag);
+		md.update(data);
+		for (int k = 56; k >= 0; k -= 8)
+			md.update((byte) (n >>> k));
+		return md.digest();
+	}
+
+	private static MessageDigest digest() {
+		try {
+			return (MessageDigest) SHA256.clone();
+		} catch (CloneNotSupportedException e) {
+			return sha256();
+		}
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform has SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package matrix.generator;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import matrix.BatchInverse;
+
+/**
+ * Uniformly random integers 1 <= x < m by rejection sampling.<BR>
+ * The bytes are taken from the Random by nextBytes in blocks, the first as
+ * large as a few values and each next twice the last up to 4 KB, so a
+ * sampler for a few values takes few bytes and one for matrices few calls.
+ * A value is the bytes of the bit length of m, taken again while it is 0 or
+ * not lower than m, less than twice on average. Moduli under 2<sup>62</sup>
+ * are sampled in a long.<BR>
+ * A sampler is not thread safe.
+ */
+public final class UniformSampler {
+	private static final int MAX_BLOCK = 4096;
+	private static final int FIRST_VALUES = 8;
+	private final Random random;
+	private final BigInteger mod;
+	// bytes of a value and the mask of its first byte
+	private final int len;
+	private final int topMask;
+	// the modulus if it fits in a long, 0 otherwise
+	private final long lmod;
+	private final byte[] value;
+	private byte[] block;
+	private int pos;
+
+	/**
+	 * A sampler of 1 <= x < modulus by 'random'.
+	 *
+	 * @throws IllegalArgumentException
+	 *             modulus < 2
+	 */
+	public UniformSampler(Random random, BigInteger modulus) {
+		if (random == null)
+			throw new NullPointerException("random");
+		if (modulus.compareTo(BigInteger.valueOf(2)) < 0)
+			throw new IllegalArgumentException("mod must be gleater or equalsto 2.");
+		this.random = random;
+		mod = modulus;
+		int bits = modulus.bitLength();
+		len = (bits + 7) / 8;
+		topMask = 0xff >>> (8 * len - bits);
+		lmod = bits <= 62 ? modulus.longValue() : 0;
+		value = new byte[len];
+		block = new byte[0];
+	}
+
+	public BigInteger getModulus() {
+		return mod;
+	}
+
+	/** Returns a uniformly random 1 <= x < m. */
+	public BigInteger next() {
+		if (lmod != 0)
+			return BigInteger.valueOf(nextLong());
+		BigInteger res;
+		do {
+			take();
+			value[0] &= topMask;
+			res = new BigInteger(1, value);
+		} while (res.signum() == 0 || res.compareTo(mod) >= 0);
+		return res;
+	}
+
+	/** Returns a uniformly random 1 <= x < m invertible (mod m). */
+	public BigInteger nextUnit() {
+		BigInteger res;
+		do
+			res = next();
+		while (!BatchInverse.isUnit(res, mod));
+		return res;
+	}
+
+	/** Sets dst[from], ..., dst[to - 1] to uniformly random 1 <= x < m. */
+	public void fill(BigInteger[] dst, int from, int to) {
+		for (int k = from; k < to; k++)
+			dst[k] = next();
+	}
+
+	/**
+	 * Sets dst[from], ..., dst[to - 1] to uniformly random 1 <= x < m
+	 * invertible (mod m).<BR>
+	 * The values are drawn at once and tested by g = gcd(Π x, m): all are
+	 * units if g = 1, otherwise x is a unit iff gcd(x, g) = 1, a gcd with the
+	 * common factors only, usually small. The values that are not are drawn
+	 * again. One gcd with m for all in place of one for each.
+	 */
+	public void fillUnits(BigInteger[] dst, int from, int to) {
+		fill(dst, from, to);
+		int[] todo = new int[to - from];
+		for (int k = 0; k < todo.length; k++)
+			todo[k] = from + k;
+		for (int n = todo.length; n > 0;) {
+			BigInteger prod = BigInteger.ONE;
+			for (int k = 0; k < n; k++)
+				prod = prod.multiply(dst[todo[k]]).mod(mod);
+			BigInteger g = prod.gcd(mod);
+			if (g.equals(BigInteger.ONE))
+				break;
+			int left = 0;
+			for (int k = 0; k < n; k++)
+				if (!dst[todo[k]].gcd(g).equals(BigInteger.ONE)) {
+					dst[todo[k]] = next();
+					todo[left++] = todo[k];
+				}
+			n = left;
+		}
+	}
+
+	/** Returns 'n' uniformly random 1 <= x < m. */
+	public BigInteger[] next(int n) {
+		BigInteger[] res = new BigInteger[n];
+		fill(res, 0, n);
+		return res;
+	}
+
+	private long nextLong() {
+		long res;
+		do {
+			if (pos + len > block.length)
+				refill();
+			res = block[pos++] & topMask;
+			for (int k = 1; k < len; k++)
+				res = res << 8 | (block[pos++] & 0xff);
+		} while (res == 0 || res >= lmod);
+		return res;
+	}
+
+	// the next bytes of a value into 'value'
+	private void take() {
+		if (pos + len > block.length)
+			refill();
+		System.arraycopy(block, pos, value, 0, len);
+		pos += len;
+	}
+
+	// a new block, twice the last up to MAX_BLOCK; the rest of the last,
+	// shorter than a value, is dropped
+	private void refill() {
+		if (block.length < MAX_BLOCK)
+			block = new byte[Math.max(len, Math.min(MAX_BLOCK, Math.max(block.length * 2, len * FIRST_VALUES)))];
+		random.nextBytes(block);
+		pos = 0;
+	}
+}
@@ -17,4 +17,29 @@ public abstract class CreateRule<E extends Comparable<E>> {
 	@SuppressWarnings("unchecked")
 	public abstract E createValue(int i, int j);
 
+	/**
+	 * Sets row[j] to the ij element for every j, the row i of a square
+	 * matrix of row.length.<BR>
+	 * The default calls createValue for each element. A rule of a structured
+	 * matrix writes its zeros at once and draws the other elements in bulk.
+	 *
+	 * @param i
+	 *            row of a matrix.
+	 * @param row
+	 *            the elements of the row to be set.
+	 */
+	public void fillRow(int i, E[] row) {
+		for (int j = 0; j < row.length; j++)
+			row[j] = createValue(i, j);
+	}
+
+	/**
+	 * Sets rows[i][j] to the ij element for every i and j, row by row with
+	 * fillRow.
+	 */
+	public void fill(E[][] rows) {
+		for (int i = 0; i < rows.length; i++)
+			fillRow(i, rows[i]);
+	}
+
 }
@@ -1,14 +1,14 @@
 package matrix.generator.rule;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Random;
 
-import matrix.generator.ModMatGen;
+import matrix.generator.UniformSampler;
 
 /** Create rule of invertible Upper Triangular Matrix */
 public final class InvertibleUTM extends CreateRule<BigInteger> {
-	private final BigInteger mod;
-	private final Random rd;
+	private final UniformSampler sampler;
 
 	public InvertibleUTM(Random random, BigInteger modulus) {
 		if (random == null)
@@ -18,18 +18,38 @@ public final class InvertibleUTM extends CreateRule<BigInteger> {
 		if (modulus.compareTo(BigInteger.ZERO) <= 0)
 			throw new IllegalArgumentException("mod must be positive number.");
 
-		rd = random;
-		mod = modulus;
+		sampler = new UniformSampler(random, modulus);
 	}
 
 	@Override
 	public BigInteger createValue(int i, int j) {
 		if (i == j)
 			// Diagonal element mast be invertible.
-			return ModMatGen.randomInvBInt(rd, mod);
+			return sampler.nextUnit();
 		else if (i > j)
 			return BigInteger.ZERO;
 		else
-			return ModMatGen.randomBInt(rd, mod);
+			return sampler.next();
+	}
+
+	/** Draws the row in bulk, zeros below the diagonal and a unit on it. */
+	@Override
+	public void fillRow(int i, BigInteger[] row) {
+		fillRow(i, row, sampler.nextUnit());
+	}
+
+	/** Draws the matrix row by row, the units on the diagonal at once. */
+	@Override
+	public void fill(BigInteger[][] rows) {
+		BigInteger[] diagonal = new BigInteger[rows.length];
+		sampler.fillUnits(diagonal, 0, rows.length);
+		for (int i = 0; i < rows.length; i++)
+			fillRow(i, rows[i], diagonal[i]);
+	}
+
+	private void fillRow(int i, BigInteger[] row, BigInteger unit) {
+		Arrays.fill(row, 0, i, BigInteger.ZERO);
+		row[i] = unit;
+		sampler.fill(row, i + 1, row.length);
 	}
 }
@@ -3,23 +3,27 @@ package matrix.generator.rule;
 import java.math.BigInteger;
 import java.util.Random;
 
-import matrix.generator.ModMatGen;
+import matrix.generator.UniformSampler;
 
 /**Create */
 public class NoRules extends CreateRule<BigInteger> {
-	private final BigInteger mod;
-	private final Random rd;
+	private final UniformSampler sampler;
 
 	public NoRules(Random random, BigInteger modulus) {
 		if (random == null)
 			throw new NullPointerException("random");
-		rd = random;
-		mod = modulus;
+		sampler = new UniformSampler(random, modulus);
 	}
 
 	@Override
 	public BigInteger createValue(int i, int j) {
-		return ModMatGen.randomBInt(rd, mod);
+		return sampler.next();
+	}
+
+	/** Draws the row in bulk. */
+	@Override
+	public void fillRow(int i, BigInteger[] row) {
+		sampler.fill(row, 0, row.length);
 	}
 
 }
\ No newline at end of file